@@ -41,7 +41,7 @@ public class SecurityConfig {
             System.out.println("=== 登录调试 ===");
             System.out.println("尝试登录用户: " + username);
 
-            User user = userRepository.findByUsername(username)
+            User user = userRepository.findWithRolesByUsername(username)
                     .orElseThrow(() -> {
                         System.out.println("用户不存在: " + username);
                         return new UsernameNotFoundException("用户不存在: " + username);
@@ -107,6 +107,8 @@ public class SecurityConfig {
                         .requestMatchers("/books/**", "/api/books/**").hasAnyRole("USER", "ADMIN")
                         // 需要 ADMIN 角色的路径
                         .requestMatchers("/admin/**", "/api/admin/**").hasRole("ADMIN")
+                        // 批量借阅/归还接口需要 ADMIN 角色
+                        .requestMatchers("/api/borrow/**", "/api/return/**").hasRole("ADMIN")
                         // 其他所有请求需要认证
                         .anyRequest().authenticated()
                 )
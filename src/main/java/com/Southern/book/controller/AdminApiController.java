@@ -0,0 +1,35 @@
+package com.Southern.book.controller;
+
+import com.Southern.book.service.CacheStatisticsService;
+import com.Southern.book.service.OverdueStatusJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminApiController {
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private OverdueStatusJob overdueStatusJob;
+
+    // 二级缓存命中情况
+    @GetMapping("/cache-stats")
+    public Map<String, Map<String, Long>> getCacheStats() {
+        return cacheStatisticsService.getRegionStatistics();
+    }
+
+    // 逾期状态任务最近一次的执行结果
+    @GetMapping("/overdue-job")
+    public Map<String, Object> getOverdueJobStatus() {
+        return overdueStatusJob.getLastRun();
+    }
+}
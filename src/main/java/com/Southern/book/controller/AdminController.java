@@ -3,12 +3,16 @@ package com.Southern.book.controller;
 import com.Southern.book.service.BookService;
 import com.Southern.book.service.UserService;
 import com.Southern.book.service.BorrowService;
+import com.Southern.book.service.DashboardCounters;
+import com.Southern.book.service.DashboardPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Controller
 @RequestMapping("/admin")
@@ -24,16 +28,36 @@ public class AdminController {
     @Autowired
     private BorrowService borrowService;
 
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    @Autowired
+    private DashboardPublisher dashboardPublisher;
+
+    // 计数直接读取内存中的 LongAdder，启动校准完成前回退到 COUNT 查询
     @GetMapping("/dashboard")
     public String showDashboard(Model model) {
-        model.addAttribute("totalBooks", bookService.getTotalBookCount());
-        model.addAttribute("availableBooks", bookService.getAvailableBookCount());
-        model.addAttribute("totalUsers", userService.getTotalUserCount());
-        model.addAttribute("activeBorrows", borrowService.getActiveBorrowCount());
+        if (dashboardCounters.isReady()) {
+            model.addAttribute("totalBooks", dashboardCounters.getTotalBooks());
+            model.addAttribute("availableBooks", dashboardCounters.getAvailableBooks());
+            model.addAttribute("totalUsers", dashboardCounters.getTotalUsers());
+            model.addAttribute("activeBorrows", dashboardCounters.getActiveBorrows());
+        } else {
+            model.addAttribute("totalBooks", bookService.getTotalBookCount());
+            model.addAttribute("availableBooks", bookService.getAvailableBookCount());
+            model.addAttribute("totalUsers", userService.getTotalUserCount());
+            model.addAttribute("activeBorrows", borrowService.getActiveBorrowCount());
+        }
         model.addAttribute("overdueRecords", borrowService.getOverdueCount());
         return "admin/dashboard";
     }
 
+    // 仪表盘计数推送（SSE），页面打开后在原处更新，不再刷新整页
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDashboard() {
+        return dashboardPublisher.subscribe();
+    }
+
     @GetMapping
     public String adminHome() {
         return "redirect:/admin/dashboard";
@@ -1,11 +1,16 @@
 package com.Southern.book.controller;
 
+import com.Southern.book.dto.CursorPage;
 import com.Southern.book.entity.Book;
+import com.Southern.book.repository.BookRepositoryCustom;
+import com.Southern.book.search.BookSuggester;
+import com.Southern.book.search.BookSuggestion;
 import com.Southern.book.service.BookService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,9 +22,31 @@ public class BookApiController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookSuggester bookSuggester;
+
+    // 关键词搜索单次最多返回的条数
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    // 游标分页获取图书：?after=<游标>&limit=，返回当前页和下一页游标；
+    // 指定 fields=title,author 等时只查询并返回这些字段
     @GetMapping
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
+    public ResponseEntity<CursorPage<?>> getAllBooks(@RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "50") int limit,
+                                                     @RequestParam(required = false) String fields) {
+        long afterId;
+        List<String> fieldList;
+        try {
+            afterId = CursorPage.decode(after);
+            fieldList = parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(Math.max(limit, 1), 500);
+        if (fieldList == null) {
+            return ResponseEntity.ok(bookService.getBooksAfter(afterId, pageSize));
+        }
+        return ResponseEntity.ok(bookService.getBookFieldsAfter(fieldList, afterId, pageSize));
     }
 
     @GetMapping("/available")
@@ -57,12 +84,55 @@ public class BookApiController {
     }
 
     @GetMapping("/search")
-    public List<Book> searchBooks(@RequestParam String keyword) {
-        return bookService.searchBooks(keyword);
+    public ResponseEntity<List<?>> searchBooks(@RequestParam String keyword,
+                                               @RequestParam(required = false) String sort,
+                                               @RequestParam(defaultValue = "20") int limit,
+                                               @RequestParam(required = false) String fields) {
+        List<String> fieldList;
+        try {
+            fieldList = parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean byRelevance = "relevance".equals(sort);
+        limit = Math.min(Math.max(limit, 1), MAX_SEARCH_LIMIT);
+        if (fieldList != null) {
+            return ResponseEntity.ok(bookService.searchBookFields(keyword, fieldList, byRelevance, limit));
+        }
+        if (byRelevance) {
+            return ResponseEntity.ok(bookService.searchBooksByRelevance(keyword, limit));
+        }
+        return ResponseEntity.ok(bookService.searchBooks(keyword, limit));
+    }
+
+    // 搜索联想，从内存前缀数组中返回书名、作者、ISBN补全
+    @GetMapping("/suggest")
+    public List<BookSuggestion> suggest(@RequestParam String q,
+                                        @RequestParam(defaultValue = "10") int limit) {
+        return bookSuggester.suggest(q, Math.min(Math.max(limit, 1), 50));
     }
 
     @GetMapping("/category/{categoryId}")
     public List<Book> getBooksByCategory(@PathVariable Long categoryId) {
         return bookService.getBooksByCategory(categoryId);
     }
+
+    // 解析 fields 参数，未指定时返回 null 表示返回完整图书；包含不支持的字段时抛出 IllegalArgumentException
+    private static List<String> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || result.contains(name)) {
+                continue;
+            }
+            if (!BookRepositoryCustom.SELECTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("不支持的字段: " + name);
+            }
+            result.add(name);
+        }
+        return result.isEmpty() ? null : result;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.Southern.book.controller;
 
+import com.Southern.book.dto.BookSummary;
 import com.Southern.book.entity.Book;
 import com.Southern.book.entity.Category;
 import com.Southern.book.service.BookService;
@@ -7,6 +8,7 @@ import com.Southern.book.service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +27,9 @@ import org.springframework.beans.factory.annotation.Value;
 @Controller
 @RequestMapping("/books")
 public class BookController {
+    // 简单搜索页最多显示的结果数，完整结果请使用分页的图书列表
+    private static final int SEARCH_RESULT_LIMIT = 200;
+
     @Autowired
     private BookService bookService;
     
@@ -41,14 +46,20 @@ public class BookController {
                              @RequestParam(defaultValue = "10") int size,
                              @RequestParam(required = false) String keyword,
                              @RequestParam(required = false) Long categoryId,
-                             @RequestParam(required = false) String status) {
-        // 处理搜索
-        List<Book> books;
-        if (keyword != null || categoryId != null || status != null) {
-            books = bookService.searchBooks(keyword, categoryId, status);
+                             @RequestParam(required = false) String status,
+                             @RequestParam(required = false) String sort) {
+        // 处理搜索：筛选条件和分页都交给数据库处理，每次只加载一页数据
+        if (page < 0) page = 0;
+        if (size < 1) size = 10;
+        // 列表页只查询摘要字段，不加载简介等大字段
+        Page<BookSummary> bookPage;
+        if ("relevance".equals(sort)) {
+            // 按相关度排序
+            bookPage = bookService.searchBookSummariesByRelevance(keyword, categoryId, status, PageRequest.of(page, size));
         } else {
-            books = bookService.getAllBooks();
+            bookPage = bookService.searchBookSummaries(keyword, categoryId, status, PageRequest.of(page, size, Sort.by("id")));
         }
+        List<BookSummary> books = bookPage.getContent();
         
         // 设置分页相关属性
         model.addAttribute("books", books);
@@ -56,12 +67,13 @@ public class BookController {
         model.addAttribute("keyword", keyword);
         model.addAttribute("categoryId", categoryId);
         model.addAttribute("status", status);
+        model.addAttribute("sort", sort);
         
         // 设置总记录数和分页信息
-        int totalElements = books.size();
-        int totalPages = (int) Math.ceil((double) totalElements / size);
-        int startIndex = page * size;
-        int endIndex = Math.min(startIndex + size, totalElements);
+        long totalElements = bookPage.getTotalElements();
+        int totalPages = bookPage.getTotalPages();
+        long startIndex = (long) page * size;
+        long endIndex = startIndex + books.size();
         
         model.addAttribute("totalElements", totalElements);
         model.addAttribute("totalPages", totalPages);
@@ -125,7 +137,7 @@ public class BookController {
     @GetMapping("/edit/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public String showEditForm(@PathVariable Long id, Model model) {
-        return bookService.getBookById(id)
+        return bookService.getBookWithCategoriesById(id)
                 .map(book -> {
                     model.addAttribute("book", book);
                     model.addAttribute("categories", categoryService.getAllCategories());
@@ -180,7 +192,7 @@ public class BookController {
     // 查看图书详情
     @GetMapping("/view/{id}")
     public String viewBook(@PathVariable Long id, Model model) {
-        return bookService.getBookById(id)
+        return bookService.getBookWithCategoriesById(id)
                 .map(book -> {
                     model.addAttribute("book", book);
                     return "books/view";
@@ -202,7 +214,7 @@ public class BookController {
     // 搜索图书
     @GetMapping("/search")
     public String searchBooks(@RequestParam String keyword, Model model) {
-        List<Book> books = bookService.searchBooks(keyword);
+        List<Book> books = bookService.searchBooks(keyword, SEARCH_RESULT_LIMIT);
         model.addAttribute("books", books);
         model.addAttribute("keyword", keyword);
         return "books/list";
@@ -0,0 +1,62 @@
+package com.Southern.book.controller;
+
+import com.Southern.book.dto.BatchBorrowRequest;
+import com.Southern.book.dto.BatchResult;
+import com.Southern.book.dto.BatchReturnRequest;
+import com.Southern.book.service.BorrowService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// 借还台批量借阅/归还接口：没有任何单项成功时（含整单模式失败）返回 409，否则返回 200，结果中包含每一项的处理情况
+@RestController
+@RequestMapping("/api")
+public class BorrowApiController {
+
+    // 单次请求最多处理的条目数
+    private static final int MAX_BATCH_SIZE = 50;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @PostMapping("/borrow/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BatchResult> borrowBatch(@RequestBody BatchBorrowRequest request) {
+        if (request.getUserId() == null || !isValidBatch(request.getBookIds()) || request.getDays() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return toResponse(borrowService.borrowBooks(request.getUserId(), request.getBookIds(),
+                    request.getDays(), request.isAllOrNothing()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/return/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BatchResult> returnBatch(@RequestBody BatchReturnRequest request) {
+        if (!isValidBatch(request.getRecordIds())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return toResponse(borrowService.returnBooks(request.getRecordIds(), request.isAllOrNothing()));
+    }
+
+    private static boolean isValidBatch(List<Long> ids) {
+        return ids != null && !ids.isEmpty() && ids.size() <= MAX_BATCH_SIZE && !ids.contains(null);
+    }
+
+    private static ResponseEntity<BatchResult> toResponse(BatchResult result) {
+        if (result.getSucceeded() == 0 && !result.getItems().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
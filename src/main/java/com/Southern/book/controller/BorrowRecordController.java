@@ -1,5 +1,7 @@
 package com.Southern.book.controller;
 
+import com.Southern.book.dto.OverdueSummary;
+import com.Southern.book.dto.UserBorrowStats;
 import com.Southern.book.entity.BorrowRecord;
 import com.Southern.book.entity.User;
 import com.Southern.book.service.BorrowService;
@@ -17,10 +19,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
@@ -37,87 +37,80 @@ public class BorrowRecordController {
     @Autowired
     private UserService userService;
 
+    // 借阅记录可用的排序方式：参数值 -> 排序字段，均以ID兜底保证分页稳定
+    private static final Map<String, Sort> RECORD_SORTS = Map.of(
+            "newest", Sort.by("id").descending(),
+            "oldest", Sort.by("id").ascending(),
+            "dueDate", Sort.by("dueDate").ascending().and(Sort.by("id")),
+            "borrowDate", Sort.by("borrowDate").descending().and(Sort.by("id").descending()),
+            "username", Sort.by("searchUsername").ascending().and(Sort.by("id")),
+            "bookTitle", Sort.by("searchBookTitle").ascending().and(Sort.by("id")));
+
     @GetMapping({"/records", "/record"})
     @PreAuthorize("hasRole('ADMIN')")
     public String listBorrowRecords(@RequestParam(defaultValue = "1") int page,
+                                   @RequestParam(defaultValue = "10") int size,
+                                   @RequestParam(defaultValue = "newest") String sort,
                                    @RequestParam(required = false) String username,
                                    @RequestParam(required = false) String bookTitle,
                                    @RequestParam(required = false) String status,
                                    Model model) {
-        int pageSize = 10;
-        
-        // 使用搜索方法获取过滤后的记录
-        List<BorrowRecord> filteredRecords = borrowService.searchBorrowRecords(username, bookTitle, status);
-        
-        // 手动实现分页
-        int totalRecords = filteredRecords.size();
-        int totalPages = (int) Math.ceil((double) totalRecords / pageSize);
-        
-        // 确保页码有效
-        if (page < 1) page = 1;
-        if (page > totalPages && totalPages > 0) page = totalPages;
-        
-        // 计算当前页的数据
-        int startIndex = (page - 1) * pageSize;
-        int endIndex = Math.min(startIndex + pageSize, totalRecords);
-        
-        List<BorrowRecord> records;
-        if (startIndex < totalRecords) {
-            records = filteredRecords.subList(startIndex, endIndex);
-        } else {
-            records = List.of();
-        }
-        
-        model.addAttribute("records", records);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", totalPages > 0 ? totalPages : 1);
-        model.addAttribute("totalRecords", totalRecords);
+        // 数据库分页：只加载当前页的记录
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        String sortKey = RECORD_SORTS.containsKey(sort) ? sort : "newest";
+        Page<BorrowRecord> recordPage = borrowService.searchBorrowRecords(username, bookTitle, status,
+                PageRequest.of(Math.max(page, 1) - 1, pageSize, RECORD_SORTS.get(sortKey)));
+        
+        int currentPage = recordPage.getNumber() + 1;
+        model.addAttribute("records", recordPage.getContent());
+        model.addAttribute("currentPage", currentPage);
+        model.addAttribute("totalPages", recordPage.getTotalPages());
+        model.addAttribute("totalElements", recordPage.getTotalElements());
+        model.addAttribute("size", pageSize);
+        model.addAttribute("sort", sortKey);
         model.addAttribute("username", username);
         model.addAttribute("bookTitle", bookTitle);
         model.addAttribute("status", status);
         
         // 添加用于借阅模态框的图书和用户数据
-        model.addAttribute("books", bookService.getAvailableBooks());
+        model.addAttribute("books", bookService.getAvailableBookOptions());
         model.addAttribute("users", userService.getAllUsers());
         
         return "borrow/record";
     }
 
+    // 个人借阅记录按借阅日期从新到旧排列，ID兜底保证分页稳定
+    private static final Sort MY_RECORD_SORT = Sort.by("borrowDate").descending().and(Sort.by("id").descending());
+
     @GetMapping("/my-records")
     @PreAuthorize("hasRole('USER')")
-    public String listMyBorrowRecords(@RequestParam(defaultValue = "1") int page, Model model) {
+    public String listMyBorrowRecords(@RequestParam(defaultValue = "1") int page,
+                                      @RequestParam(defaultValue = "10") int size,
+                                      Model model) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
-        List<BorrowRecord> records = borrowService.getBorrowRecordsByUsername(username);
-        
-        // 计算统计数据
-        int currentBorrowCount = 0;
-        int overdueCount = 0;
-        int historyCount = 0;
-        int totalBorrowDays = 0;
-        
-        for (BorrowRecord record : records) {
-            if ("RETURNED".equals(record.getStatus())) {
-                historyCount++;
-                // 计算借阅天数
-                if (record.getReturnDate() != null) {
-                    totalBorrowDays += ChronoUnit.DAYS.between(record.getBorrowDate(), record.getReturnDate());
-                }
-            } else {
-                currentBorrowCount++;
-                if ("OVERDUE".equals(record.getStatus()) || LocalDate.now().isAfter(record.getDueDate())) {
-                    overdueCount++;
-                }
-            }
-        }
+        User user = userService.getUserByUsername(username).orElseThrow(() -> new IllegalStateException("用户不存在"));
         
-        model.addAttribute("records", records);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", 1); // 简化处理
-        model.addAttribute("currentBorrowCount", currentBorrowCount);
-        model.addAttribute("overdueCount", overdueCount);
-        model.addAttribute("historyCount", historyCount);
-        model.addAttribute("totalBorrowDays", totalBorrowDays);
+        // 统计数据由一条按状态分组的聚合查询得出，记录列表只查询当前页
+        UserBorrowStats stats = borrowService.getUserBorrowStats(user.getId());
+        
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        int totalPages = (int) Math.max(1, (stats.getRecordCount() + pageSize - 1) / pageSize);
+        int currentPage = Math.min(Math.max(page, 1), totalPages);
+        Page<BorrowRecord> recordPage = borrowService.getBorrowRecordsByUser(user.getId(),
+                PageRequest.of(currentPage - 1, pageSize, MY_RECORD_SORT), stats.getRecordCount());
+        
+        model.addAttribute("records", recordPage.getContent());
+        model.addAttribute("currentPage", currentPage);
+        model.addAttribute("totalPages", recordPage.getTotalPages());
+        model.addAttribute("totalElements", recordPage.getTotalElements());
+        model.addAttribute("startIndex", recordPage.getNumber() * pageSize);
+        model.addAttribute("endIndex", recordPage.getNumber() * pageSize + recordPage.getNumberOfElements());
+        model.addAttribute("size", pageSize);
+        model.addAttribute("currentBorrowCount", stats.getCurrentBorrowCount());
+        model.addAttribute("overdueCount", stats.getOverdueCount());
+        model.addAttribute("historyCount", stats.getHistoryCount());
+        model.addAttribute("totalBorrowDays", stats.getTotalBorrowDays());
         
         return "borrow/my_record";
     }
@@ -125,7 +118,7 @@ public class BorrowRecordController {
     @GetMapping("/borrow/borrow")
     @PreAuthorize("hasRole('ADMIN')")
     public String showBorrowForm(Model model) {
-        model.addAttribute("books", bookService.getAvailableBooks());
+        model.addAttribute("books", bookService.getAvailableBookOptions());
         model.addAttribute("users", userService.getAllUsers());
         
         // 添加近期借阅记录
@@ -210,35 +203,43 @@ public class BorrowRecordController {
         return "redirect:/borrow/my-records";
     }
 
+    // 逾期记录可用的排序方式：参数值 -> 排序字段
+    private static final Map<String, Sort> OVERDUE_SORTS = Map.of(
+            "dueDate", Sort.by("dueDate").ascending().and(Sort.by("id")),
+            "borrowDate", Sort.by("borrowDate").ascending().and(Sort.by("id")),
+            "fine", Sort.by("fineAmount").descending().and(Sort.by("id")),
+            "username", Sort.by("user.username").ascending().and(Sort.by("id")),
+            "bookTitle", Sort.by("book.title").ascending().and(Sort.by("id")));
+
     @GetMapping("/overdue")
     @PreAuthorize("hasRole('ADMIN')")
-    public String listOverdueRecords(@RequestParam(defaultValue = "1") int page, Model model) {
-        List<BorrowRecord> overdueRecords = borrowService.getOverdueRecords();
-        
-        // 计算逾期统计数据
-        int totalOverdueDays = 0;
-        double totalFine = 0;
-        int mostOverdueDays = 0;
-        Set<User> overdueUsers = new HashSet<>();
-        
-        for (BorrowRecord record : overdueRecords) {
-            long overdueDays = ChronoUnit.DAYS.between(record.getDueDate(), LocalDate.now());
-            totalOverdueDays += overdueDays;
-            mostOverdueDays = Math.max(mostOverdueDays, (int) overdueDays);
-            overdueUsers.add(record.getUser());
-            
-            if (record.getFineAmount() != null) {
-                totalFine += record.getFineAmount();
-            }
-        }
-        
-        model.addAttribute("records", overdueRecords);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", 1); // 简化处理
-        model.addAttribute("totalOverdueDays", totalOverdueDays);
-        model.addAttribute("totalFine", totalFine);
-        model.addAttribute("mostOverdueDays", mostOverdueDays);
-        model.addAttribute("overdueUsers", overdueUsers);
+    public String listOverdueRecords(@RequestParam(defaultValue = "1") int page,
+                                     @RequestParam(defaultValue = "20") int size,
+                                     @RequestParam(defaultValue = "dueDate") String sort,
+                                     Model model) {
+        // 统计数据由一条聚合查询得出，记录列表只查询当前页
+        OverdueSummary summary = borrowService.getOverdueSummary();
+        
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        String sortKey = OVERDUE_SORTS.containsKey(sort) ? sort : "dueDate";
+        int totalPages = (int) Math.max(1, (summary.getRecordCount() + pageSize - 1) / pageSize);
+        int currentPage = Math.min(Math.max(page, 1), totalPages);
+        Page<BorrowRecord> recordPage = borrowService.getOverdueRecords(
+                PageRequest.of(currentPage - 1, pageSize, OVERDUE_SORTS.get(sortKey)), summary.getRecordCount());
+        
+        model.addAttribute("records", recordPage.getContent());
+        model.addAttribute("currentPage", currentPage);
+        model.addAttribute("totalPages", recordPage.getTotalPages());
+        model.addAttribute("totalElements", recordPage.getTotalElements());
+        model.addAttribute("startIndex", recordPage.getNumber() * pageSize);
+        model.addAttribute("endIndex", recordPage.getNumber() * pageSize + recordPage.getNumberOfElements());
+        model.addAttribute("size", pageSize);
+        model.addAttribute("sort", sortKey);
+        model.addAttribute("today", LocalDate.now());
+        model.addAttribute("totalOverdueDays", summary.getTotalOverdueDays());
+        model.addAttribute("totalFine", summary.getTotalFine());
+        model.addAttribute("mostOverdueDays", summary.getMostOverdueDays());
+        model.addAttribute("overdueUserCount", summary.getUserCount());
         
         return "borrow/overdue";
     }
@@ -1,11 +1,11 @@
 package com.Southern.book.controller;
 
 import com.Southern.book.service.DataImportExportService;
+import com.Southern.book.service.ImportJob;
+import com.Southern.book.service.ImportJobService;
 import com.opencsv.CSVWriter;
-import com.Southern.book.entity.Book;
-import com.Southern.book.entity.User;
-import com.Southern.book.entity.Role;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -13,15 +13,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 @Controller
 @RequestMapping("/data")
@@ -31,21 +27,42 @@ public class DataImportExportController {
     @Autowired
     private DataImportExportService dataImportExportService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
     @GetMapping("/import-export")
     public String showImportExportPage() {
         return "data/import_export";
     }
 
+    // 图书导入在后台执行，提交后页面按任务ID轮询进度；upsert 时按ISBN更新已有图书
     @PostMapping("/import/books")
-    public String importBooks(@RequestParam("file") MultipartFile file, Model model) {
+    public String importBooks(@RequestParam("file") MultipartFile file,
+                              @RequestParam(defaultValue = "false") boolean upsert, Model model) {
         try {
-            int count = dataImportExportService.importBooksFromCsv(file);
-            model.addAttribute("message", "成功导入 " + count + " 本图书");
+            ImportJob job = importJobService.submit(file, upsert);
+            model.addAttribute("successMessage", "导入任务已提交，任务ID：" + job.getId());
+            model.addAttribute("importJob", job);
         } catch (Exception e) {
-            model.addAttribute("error", "导入失败: " + e.getMessage());
+            model.addAttribute("errorMessage", "导入失败: " + e.getMessage());
         }
         return "data/import_export";
     }
+
+    // 导入任务进度：已解析、已写入、被拒绝的行数和吞吐量
+    @GetMapping("/jobs/{id}")
+    @ResponseBody
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String id) {
+        ImportJob job = importJobService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/jobs/{id}/cancel")
+    @ResponseBody
+    public ResponseEntity<ImportJob> cancelImportJob(@PathVariable String id) {
+        ImportJob job = importJobService.cancel(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
     
     @GetMapping("/download-template")
     public void downloadImportTemplate(HttpServletResponse response) throws IOException {
@@ -85,12 +102,14 @@ public class DataImportExportController {
     }
     
     @GetMapping("/export/users")
-    public void exportUsers(HttpServletResponse response) throws IOException {
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=users.csv");
-        dataImportExportService.exportUsersToCsv();
+    public void exportUsers(@RequestParam(value = "includeInactive", defaultValue = "false") boolean includeInactive,
+                            HttpServletResponse response) throws IOException {
+        try (Writer writer = openCsv(response, "users.csv")) {
+            dataImportExportService.exportUsersToCsv(writer, includeInactive);
+        }
     }
     
+    // 导出数据：查询结果流式写入响应，不在内存中保存完整列表
     @PostMapping("/export")
     public void exportData(@RequestParam("exportType") String exportType, 
                          @RequestParam("format") String format,
@@ -98,111 +117,47 @@ public class DataImportExportController {
                          HttpServletResponse response) throws IOException {
         
         // 设置响应格式 - 只支持CSV格式
-        if (format.equals("CSV")) {
-            response.setContentType("text/csv");
-            
-            // 根据导出类型处理
-            switch (exportType) {
-                case "BOOKS":
-                String filename = "books.csv";
-                response.setHeader("Content-Disposition", "attachment; filename=" + filename);
-                // 设置UTF-8编码
-                response.setCharacterEncoding("UTF-8");
-                
-                // 使用CSVWriter直接写入响应输出流，并指定UTF-8编码
-                try (OutputStreamWriter osw = new OutputStreamWriter(response.getOutputStream(), "UTF-8");
-                     CSVWriter writer = new CSVWriter(osw)) {
-                    // 添加BOM以确保Excel正确识别中文字符
-                    osw.write("\uFEFF");
-                        // 写入表头
-                        String[] header = {"ID", "ISBN", "Title", "Author", "Publisher", "PublishDate", "Price", "TotalCopies", "AvailableCopies"};
-                        writer.writeNext(header);
-
-                        // 获取图书数据并写入
-                        List<Book> books = dataImportExportService.getAllBooks();
-                        DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                        for (Book book : books) {
-                            String[] data = {
-                                book.getId().toString(),
-                                book.getIsbn() != null ? book.getIsbn() : "",
-                                book.getTitle(),
-                                book.getAuthor() != null ? book.getAuthor() : "",
-                                book.getPublisher() != null ? book.getPublisher() : "",
-                                book.getPublishDate() != null ? book.getPublishDate().format(DATE_FORMATTER) : "",
-                                book.getPrice() != null ? book.getPrice().toString() : "0",
-                                book.getTotalCopies().toString(),
-                                book.getAvailableCopies().toString()
-                            };
-                            writer.writeNext(data);
-                        }
-                    }
-                    break;
-                case "USERS":
-                filename = "users.csv";
-                response.setHeader("Content-Disposition", "attachment; filename=" + filename);
-                // 设置UTF-8编码
-                response.setCharacterEncoding("UTF-8");
-                
-                // 使用CSVWriter直接写入响应输出流，并指定UTF-8编码
-                try (OutputStreamWriter osw = new OutputStreamWriter(response.getOutputStream(), "UTF-8");
-                     CSVWriter writer = new CSVWriter(osw)) {
-                    // 添加BOM以确保Excel正确识别中文字符
-                    osw.write("\uFEFF");
-                        // 写入用户表头
-                        String[] header = {"ID", "Username", "Email", "FullName", "Roles", "Enabled"};
-                        writer.writeNext(header);
-
-                        // 获取用户数据并写入
-                        List<User> users = dataImportExportService.getAllUsers();
-                        for (User user : users) {
-                            if (!includeInactive && !user.isEnabled()) {
-                                continue; // 跳过非活动用户
-                            }
-                            String[] data = {
-                                user.getId().toString(),
-                                user.getUsername(),
-                                user.getEmail() != null ? user.getEmail() : "",
-                                user.getFullName() != null ? user.getFullName() : "",
-                                user.getRoles().stream().map(Role::getName).collect(Collectors.joining(",")),
-                                String.valueOf(user.isEnabled())
-                            };
-                            writer.writeNext(data);
-                        }
-                    }
-                    break;
-                case "BORROW_RECORDS":
-                filename = "borrow_records.csv";
-                response.setHeader("Content-Disposition", "attachment; filename=" + filename);
-                // 设置UTF-8编码
-                response.setCharacterEncoding("UTF-8");
-                
-                // 使用CSVWriter直接写入响应输出流，并指定UTF-8编码
-                try (OutputStreamWriter osw = new OutputStreamWriter(response.getOutputStream(), "UTF-8");
-                     CSVWriter writer = new CSVWriter(osw)) {
-                    // 添加BOM以确保Excel正确识别中文字符
-                    osw.write("\uFEFF");
-                        // 写入表头
-                        String[] header = {"ID", "User", "Book", "BorrowDate", "DueDate", "ReturnDate", "Status", "FineAmount"};
-                        writer.writeNext(header);
-                        
-                        // 这里需要注入BorrowService并获取借阅记录数据
-                        // 暂时返回基本信息
-                        writer.writeNext(new String[]{"1", "示例用户", "示例图书", "2024-01-01", "2024-01-15", "2024-01-14", "RETURNED", "0.0"});
-                    }
-                    break;
-                default:
-                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "无效的导出类型");
-            }
-        } else {
+        if (!format.equals("CSV")) {
             response.sendError(HttpServletResponse.SC_BAD_REQUEST, "仅支持CSV格式导出");
+            return;
+        }
+        
+        // 根据导出类型处理
+        switch (exportType) {
+            case "BOOKS":
+                try (Writer writer = openCsv(response, "books.csv")) {
+                    dataImportExportService.exportBooksToCsv(writer);
+                }
+                break;
+            case "USERS":
+                try (Writer writer = openCsv(response, "users.csv")) {
+                    dataImportExportService.exportUsersToCsv(writer, includeInactive);
+                }
+                break;
+            case "BORROW_RECORDS":
+                try (Writer writer = openCsv(response, "borrow_records.csv")) {
+                    dataImportExportService.exportBorrowRecordsToCsv(writer);
+                }
+                break;
+            default:
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "无效的导出类型");
         }
-
     }
-/*
+    
+    // 设置CSV下载的响应头，返回写入响应输出流的UTF-8 Writer（已写入BOM，确保Excel正确识别中文字符）
+    private static Writer openCsv(HttpServletResponse response, String filename) throws IOException {
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=" + filename);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        writer.write("\uFEFF");
+        return writer;
+    }
+
     @GetMapping("/export/borrow-records")
     public void exportBorrowRecords(HttpServletResponse response) throws IOException {
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=borrow_records.csv");
-        dataImportExportService.exportBorrowRecordsToCSV(response.getWriter());
-    }*/
+        try (Writer writer = openCsv(response, "borrow_records.csv")) {
+            dataImportExportService.exportBorrowRecordsToCsv(writer);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.Southern.book.dto;
+
+import java.util.List;
+
+// 批量借阅请求：同一用户一次借阅多本图书；allOrNothing 为 true 时任一本失败则整单不借
+public class BatchBorrowRequest {
+    private Long userId;
+    private List<Long> bookIds;
+    private int days = 14;
+    private boolean allOrNothing = true;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public List<Long> getBookIds() { return bookIds; }
+    public void setBookIds(List<Long> bookIds) { this.bookIds = bookIds; }
+    public int getDays() { return days; }
+    public void setDays(int days) { this.days = days; }
+    public boolean isAllOrNothing() { return allOrNothing; }
+    public void setAllOrNothing(boolean allOrNothing) { this.allOrNothing = allOrNothing; }
+}
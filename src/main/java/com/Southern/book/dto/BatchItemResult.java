@@ -0,0 +1,33 @@
+package com.Southern.book.dto;
+
+// 批量借阅/归还中单项的处理结果
+public class BatchItemResult {
+    private final Long bookId;
+    private Long recordId;
+    private boolean success;
+    private String message;
+    private Double fineAmount;
+
+    public BatchItemResult(Long bookId, Long recordId) {
+        this.bookId = bookId;
+        this.recordId = recordId;
+    }
+
+    public void succeed(Long recordId) {
+        this.recordId = recordId;
+        this.success = true;
+        this.message = null;
+    }
+
+    public void fail(String message) {
+        this.success = false;
+        this.message = message;
+    }
+
+    public Long getBookId() { return bookId; }
+    public Long getRecordId() { return recordId; }
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+    public Double getFineAmount() { return fineAmount; }
+    public void setFineAmount(Double fineAmount) { this.fineAmount = fineAmount; }
+}
@@ -0,0 +1,20 @@
+package com.Southern.book.dto;
+
+import java.util.List;
+
+// 批量借阅/归还结果：success 表示所有单项都成功；整单模式下失败时所有单项均未生效
+public class BatchResult {
+    private final boolean success;
+    private final int succeeded;
+    private final List<BatchItemResult> items;
+
+    public BatchResult(List<BatchItemResult> items) {
+        this.items = items;
+        this.succeeded = (int) items.stream().filter(BatchItemResult::isSuccess).count();
+        this.success = succeeded == items.size();
+    }
+
+    public boolean isSuccess() { return success; }
+    public int getSucceeded() { return succeeded; }
+    public List<BatchItemResult> getItems() { return items; }
+}
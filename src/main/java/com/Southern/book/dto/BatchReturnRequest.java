@@ -0,0 +1,14 @@
+package com.Southern.book.dto;
+
+import java.util.List;
+
+// 批量归还请求：allOrNothing 为 true 时任一条失败则整单不归还
+public class BatchReturnRequest {
+    private List<Long> recordIds;
+    private boolean allOrNothing = true;
+
+    public List<Long> getRecordIds() { return recordIds; }
+    public void setRecordIds(List<Long> recordIds) { this.recordIds = recordIds; }
+    public boolean isAllOrNothing() { return allOrNothing; }
+    public void setAllOrNothing(boolean allOrNothing) { this.allOrNothing = allOrNothing; }
+}
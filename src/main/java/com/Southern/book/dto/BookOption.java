@@ -0,0 +1,9 @@
+package com.Southern.book.dto;
+
+// 图书下拉选项投影：只查询ID、书名、作者和可借数量
+public interface BookOption {
+    Long getId();
+    String getTitle();
+    String getAuthor();
+    Integer getAvailableCopies();
+}
@@ -0,0 +1,42 @@
+package com.Southern.book.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 图书列表摘要：不包含简介（TEXT列）等列表页用不到的字段，分类由单独的一条查询批量填充
+public class BookSummary {
+    private final Long id;
+    private final String isbn;
+    private final String title;
+    private final String author;
+    private final String publisher;
+    private final Double price;
+    private final Integer totalCopies;
+    private final Integer availableCopies;
+    private final String coverImage;
+    private final List<CategorySummary> categories = new ArrayList<>();
+
+    public BookSummary(Long id, String isbn, String title, String author, String publisher,
+                       Double price, Integer totalCopies, Integer availableCopies, String coverImage) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.author = author;
+        this.publisher = publisher;
+        this.price = price;
+        this.totalCopies = totalCopies;
+        this.availableCopies = availableCopies;
+        this.coverImage = coverImage;
+    }
+
+    public Long getId() { return id; }
+    public String getIsbn() { return isbn; }
+    public String getTitle() { return title; }
+    public String getAuthor() { return author; }
+    public String getPublisher() { return publisher; }
+    public Double getPrice() { return price; }
+    public Integer getTotalCopies() { return totalCopies; }
+    public Integer getAvailableCopies() { return availableCopies; }
+    public String getCoverImage() { return coverImage; }
+    public List<CategorySummary> getCategories() { return categories; }
+}
@@ -0,0 +1,15 @@
+package com.Southern.book.dto;
+
+// 分类摘要：列表页只需要分类ID和名称
+public class CategorySummary {
+    private final Long id;
+    private final String name;
+
+    public CategorySummary(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+}
@@ -0,0 +1,52 @@
+package com.Southern.book.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// 游标分页结果：items 为当前页数据，nextCursor 为获取下一页所需的不透明游标（没有下一页时为 null）
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // 由多查询一条的结果构造分页：结果数超过 limit 说明还有下一页，游标取本页最后一条的ID
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, Long> idGetter) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, encode(idGetter.apply(items.get(limit - 1))));
+    }
+
+    // 游标编码：对ID做Base64处理，调用方不应依赖其内部格式
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 游标解码，空游标表示从头开始（返回0），格式错误时抛出 IllegalArgumentException
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("id:")) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return Long.parseLong(raw.substring(3));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
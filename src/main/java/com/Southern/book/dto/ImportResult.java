@@ -0,0 +1,73 @@
+package com.Southern.book.dto;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 导入结果：成功和失败的行数，以及失败行的明细（按批记录，最多保留 MAX_ERRORS 条，避免大文件全部失败时占用过多内存）。
+// 导入进行中也可以从其他线程读取当前进度：parsed 由各解析线程累加，其余计数只由写入线程修改
+public class ImportResult {
+    public static final int MAX_ERRORS = 100;
+
+    private final AtomicInteger parsed = new AtomicInteger();
+    private volatile int imported;
+    private volatile int updated;
+    private volatile int failed;
+    private volatile int chunks;
+    private volatile boolean cancelled;
+    private final List<RowError> errors = new CopyOnWriteArrayList<>();
+
+    public void addParsed(int count) {
+        parsed.addAndGet(count);
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    // 按ISBN更新的已有图书数，计入 imported
+    public void addUpdated(int count) {
+        updated += count;
+    }
+
+    public void addChunk() {
+        chunks++;
+    }
+
+    public void fail(int chunk, int line, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(chunk, line, message));
+        }
+    }
+
+    // 请求取消：写入线程在下一批开始前停止，已写入的批次保留
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public int getParsed() { return parsed.get(); }
+    public int getImported() { return imported; }
+    public int getUpdated() { return updated; }
+    public int getFailed() { return failed; }
+    public int getChunks() { return chunks; }
+    public boolean isCancelled() { return cancelled; }
+    public List<RowError> getErrors() { return errors; }
+
+    // 单行失败：所在批次（从1开始）、CSV 行号和原因
+    public static class RowError {
+        private final int chunk;
+        private final int line;
+        private final String message;
+
+        public RowError(int chunk, int line, String message) {
+            this.chunk = chunk;
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getChunk() { return chunk; }
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+    }
+}
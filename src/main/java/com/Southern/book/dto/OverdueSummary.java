@@ -0,0 +1,28 @@
+package com.Southern.book.dto;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// 逾期统计：由一条聚合查询得出，不随逾期记录数增加而占用更多内存
+public class OverdueSummary {
+    private final long recordCount;
+    private final long totalOverdueDays;
+    private final double totalFine;
+    private final long mostOverdueDays;
+    private final long userCount;
+
+    public OverdueSummary(Long recordCount, Long totalOverdueDays, Double totalFine,
+                          LocalDate earliestDueDate, Long userCount, LocalDate today) {
+        this.recordCount = recordCount == null ? 0 : recordCount;
+        this.totalOverdueDays = totalOverdueDays == null ? 0 : totalOverdueDays;
+        this.totalFine = totalFine == null ? 0 : totalFine;
+        this.mostOverdueDays = earliestDueDate == null ? 0 : ChronoUnit.DAYS.between(earliestDueDate, today);
+        this.userCount = userCount == null ? 0 : userCount;
+    }
+
+    public long getRecordCount() { return recordCount; }
+    public long getTotalOverdueDays() { return totalOverdueDays; }
+    public double getTotalFine() { return totalFine; }
+    public long getMostOverdueDays() { return mostOverdueDays; }
+    public long getUserCount() { return userCount; }
+}
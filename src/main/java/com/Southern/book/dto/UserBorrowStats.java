@@ -0,0 +1,24 @@
+package com.Southern.book.dto;
+
+// 个人借阅统计：由按状态分组的一条聚合查询得出，不随借阅历史增长而加载更多记录
+public class UserBorrowStats {
+    private final long currentBorrowCount;
+    private final long overdueCount;
+    private final long historyCount;
+    private final long totalBorrowDays;
+
+    public UserBorrowStats(long currentBorrowCount, long overdueCount, long historyCount, long totalBorrowDays) {
+        this.currentBorrowCount = currentBorrowCount;
+        this.overdueCount = overdueCount;
+        this.historyCount = historyCount;
+        this.totalBorrowDays = totalBorrowDays;
+    }
+
+    public long getCurrentBorrowCount() { return currentBorrowCount; }
+    public long getOverdueCount() { return overdueCount; }
+    public long getHistoryCount() { return historyCount; }
+    public long getTotalBorrowDays() { return totalBorrowDays; }
+
+    // 借阅记录总数（当前借阅与已归还之和）
+    public long getRecordCount() { return currentBorrowCount + historyCount; }
+}
@@ -7,6 +7,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "books")
+@NamedEntityGraph(name = "Book.withCategories", attributeNodes = @NamedAttributeNode("categories"))
 public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -45,7 +46,7 @@ public class Book {
     @Column(name = "description", columnDefinition = "TEXT")
     private String description;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "book_categories",
         joinColumns = @JoinColumn(name = "book_id"),
@@ -2,19 +2,32 @@ package com.Southern.book.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.util.Locale;
 
 @Entity
-@Table(name = "borrow_records")
+@Table(name = "borrow_records", indexes = {
+        // 按状态筛选并按应还日期排序（逾期统计、逾期列表、按状态搜索）
+        @Index(name = "idx_borrow_status_due", columnList = "status, due_date"),
+        // 按用户查询在借/历史记录
+        @Index(name = "idx_borrow_user_status", columnList = "user_id, status"),
+        // 按规范化后的用户名、书名前缀查找和排序
+        @Index(name = "idx_borrow_username", columnList = "username"),
+        @Index(name = "idx_borrow_book_title", columnList = "book_title")
+})
+@NamedEntityGraph(name = "BorrowRecord.withUserAndBook", attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("book")
+})
 public class BorrowRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
@@ -33,6 +46,13 @@ public class BorrowRecord {
     @Column(name = "fine_amount")
     private Double fineAmount = 0.0;
 
+    // 用户名、书名的小写副本：借阅时写入，书名修改时同步更新，管理员搜索只查本表，不再关联 users 和 books
+    @Column(name = "username", length = 50)
+    private String searchUsername;
+
+    @Column(name = "book_title", length = 500)
+    private String searchBookTitle;
+
     // 构造函数、getter和setter方法
     public BorrowRecord() {}
 
@@ -42,6 +62,13 @@ public class BorrowRecord {
         this.borrowDate = borrowDate;
         this.dueDate = dueDate;
         this.status = "ACTIVE";
+        this.searchUsername = searchKey(user.getUsername());
+        this.searchBookTitle = searchKey(book.getTitle());
+    }
+
+    // 搜索列的规范化：去掉首尾空白并转小写
+    public static String searchKey(String text) {
+        return text == null ? null : text.trim().toLowerCase(Locale.ROOT);
     }
 
     // Getters and Setters
@@ -61,4 +88,8 @@ public class BorrowRecord {
     public void setStatus(String status) { this.status = status; }
     public Double getFineAmount() { return fineAmount; }
     public void setFineAmount(Double fineAmount) { this.fineAmount = fineAmount; }
+    public String getSearchUsername() { return searchUsername; }
+    public void setSearchUsername(String searchUsername) { this.searchUsername = searchUsername; }
+    public String getSearchBookTitle() { return searchBookTitle; }
+    public void setSearchBookTitle(String searchBookTitle) { this.searchBookTitle = searchBookTitle; }
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.Southern.book.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = "User.withRoles", attributeNodes = @NamedAttributeNode("roles"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,7 +31,13 @@ public class User {
     @Column(name = "enabled")
     private boolean enabled = true;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // 当前未归还的借阅数量，借阅和归还时用条件更新语句原子维护，用于借阅上限校验。
+    // 不随实体保存写回：编辑用户时按加载时的旧值整行更新会覆盖期间提交的借阅和归还
+    @ColumnDefault("0")
+    @Column(name = "active_borrow_count", nullable = false, updatable = false)
+    private int activeBorrowCount = 0;
+
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "user_roles",
         joinColumns = @JoinColumn(name = "user_id"),
@@ -62,6 +70,8 @@ public class User {
     public void setPhone(String phone) { this.phone = phone; }
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public int getActiveBorrowCount() { return activeBorrowCount; }
+    public void setActiveBorrowCount(int activeBorrowCount) { this.activeBorrowCount = activeBorrowCount; }
     public Set<Role> getRoles() { return roles; }
     public void setRoles(Set<Role> roles) { this.roles = roles; }
     public void addRole(Role role) { this.roles.add(role); }
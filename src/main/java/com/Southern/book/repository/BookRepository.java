@@ -1,27 +1,104 @@
 package com.Southern.book.repository;
 
+import com.Southern.book.dto.BookOption;
 import com.Southern.book.entity.Book;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
     
     Book findByIsbn(String isbn);
     
+    // 详情页和编辑页需要分类，连同分类一次查询出来
+    @EntityGraph("Book.withCategories")
+    Optional<Book> findWithCategoriesById(Long id);
+    
     List<Book> findByTitleContainingOrAuthorContaining(String title, String author);
     
     List<Book> findByAvailableCopiesGreaterThan(int availableCopies);
     
+    long countByAvailableCopiesGreaterThan(int availableCopies);
+    
+    // 接口投影，只查询下拉选项需要的列
+    List<BookOption> findOptionsByAvailableCopiesGreaterThanOrderByTitle(int availableCopies);
+    
     @Query("SELECT b FROM Book b WHERE b.title LIKE %:keyword% OR b.author LIKE %:keyword% OR b.isbn LIKE %:keyword%")
-    List<Book> searchBooks(@Param("keyword") String keyword);
+    List<Book> searchBooks(@Param("keyword") String keyword, Pageable pageable);
     
     List<Book> findByPublisher(String publisher);
     
     @Query("SELECT b FROM Book b JOIN b.categories c WHERE c.id = :categoryId")
     List<Book> findByCategoryId(@Param("categoryId") Long categoryId);
+    
+    // 在给定ID集合中按分类和借阅状态筛选，只返回ID（用于相关度排序前过滤候选集）
+    @Query("SELECT DISTINCT b.id FROM Book b LEFT JOIN b.categories c WHERE b.id IN :ids " +
+            "AND (:categoryId IS NULL OR c.id = :categoryId) " +
+            "AND (:status IS NULL OR (:status = 'AVAILABLE' AND b.availableCopies > 0) " +
+            "OR (:status <> 'AVAILABLE' AND b.availableCopies <= 0))")
+    List<Long> filterIds(@Param("ids") Collection<Long> ids,
+                         @Param("categoryId") Long categoryId,
+                         @Param("status") String status);
+    
+    // 只查询书名、作者、ISBN三列，用于构建搜索联想词
+    @Query("SELECT b.title, b.author, b.isbn FROM Book b")
+    List<Object[]> findSuggestionSources();
+    
+    // 原子扣减可借数量，按扣减后是否借完拆成两条条件更新，受影响行数即说明是否发生了借完：
+    // 扣减后仍有副本（可借数量大于1）
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies - 1 WHERE b.id = :id AND b.availableCopies > 1")
+    int decrementAvailableCopies(@Param("id") Long id);
+    
+    // 扣减最后一本（可借数量为1），返回 1 表示图书因此借完
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = 0 WHERE b.id = :id AND b.availableCopies = 1")
+    int decrementLastAvailableCopy(@Param("id") Long id);
+    
+    // 原子增加可借数量（不超过总册数），同样按是否恢复可借拆成两条：增加前已有可借副本
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = b.availableCopies + 1 " +
+            "WHERE b.id = :id AND b.availableCopies > 0 AND b.availableCopies < b.totalCopies")
+    int incrementAvailableCopies(@Param("id") Long id);
+    
+    // 已借完的图书归还一本，返回 1 表示图书因此恢复可借
+    @Modifying
+    @Query("UPDATE Book b SET b.availableCopies = 1 WHERE b.id = :id AND b.availableCopies = 0 AND b.totalCopies > 0")
+    int incrementSoldOutCopies(@Param("id") Long id);
+    
+    // 批量查询（图书ID, 可借数量）
+    @Query("SELECT b.id, b.availableCopies FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findAvailableCopiesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 按ISBN导入更新时查出已有图书（图书ID, ISBN, 书名, 可借数量）并加行锁直到事务结束，按ID顺序加锁避免并发导入互相死锁
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id, b.isbn, b.title, b.availableCopies FROM Book b WHERE b.isbn IN :isbns ORDER BY b.id")
+    List<Object[]> lockByIsbnIn(@Param("isbns") Collection<String> isbns);
+    
+    // 导出用：按ID顺序流式读取；fetch size 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式读取结果，不一次读入内存。
+    // 流未关闭前同一连接上不能执行其他语句；需在只读事务中消费，并由调用方定期清空持久化上下文
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAllForExport();
+    
+    // 游标分页：WHERE id > ? ORDER BY id LIMIT ?，深分页与首页代价相同
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Book> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.Southern.book.repository;
+
+import com.Southern.book.dto.BookSummary;
+import com.Southern.book.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// BookRepository 的自定义查询：只查询需要的列，避免加载完整的图书实体
+public interface BookRepositoryCustom {
+
+    // 可通过 fields 参数选择的图书字段
+    List<String> SELECTABLE_FIELDS = List.of("id", "isbn", "title", "author", "publisher", "publishDate",
+            "price", "totalCopies", "availableCopies", "coverImage", "location", "description");
+
+    // 按条件分页查询图书摘要（含分类名称）
+    Page<BookSummary> findSummaries(Specification<Book> spec, Pageable pageable);
+
+    // 按给定ID顺序查询图书摘要（含分类名称）
+    List<BookSummary> findSummariesByIds(List<Long> ids);
+
+    // 游标分页查询指定字段，每行以“字段名 -> 值”返回
+    List<Map<String, Object>> findFieldsAfter(Collection<String> fields, Long afterId, int limit);
+
+    // 按给定ID顺序查询指定字段
+    List<Map<String, Object>> findFieldsByIds(Collection<String> fields, List<Long> ids);
+
+    // 批量扣减可借数量（JDBC批处理，每本一条条件更新），返回值与 ids 一一对应，1 表示扣减成功
+    int[] batchDecrementAvailableCopies(List<Long> ids);
+
+    // 批量增加可借数量，不超过总册数
+    int[] batchIncrementAvailableCopies(List<Long> ids);
+
+    // 批量插入图书（JDBC批处理，MySQL 下改写为多行 INSERT），插入后回填各图书的ID
+    void batchInsertBooks(List<Book> books);
+
+    // 按ID批量更新导入的图书信息：空字段保留原值；总册数变化时可借数量随之增减，借出未还的册数不变
+    void batchUpdateImportedBooks(List<Book> books);
+}
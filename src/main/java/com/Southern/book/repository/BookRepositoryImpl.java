@@ -0,0 +1,254 @@
+package com.Southern.book.repository;
+
+import com.Southern.book.dto.BookSummary;
+import com.Southern.book.dto.CategorySummary;
+import com.Southern.book.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private static final String INSERT_BOOK_SQL = "INSERT INTO books (isbn, title, author, publisher, publish_date, " +
+            "price, total_copies, available_copies, cover_image, location, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // available_copies 写在 total_copies 之前：MySQL 按从左到右的顺序赋值，这里用到的 total_copies 仍是原值
+    private static final String UPDATE_IMPORTED_BOOK_SQL = "UPDATE books SET title = ?, " +
+            "author = COALESCE(?, author), publisher = COALESCE(?, publisher), publish_date = COALESCE(?, publish_date), " +
+            "price = COALESCE(?, price), description = COALESCE(?, description), " +
+            "available_copies = GREATEST(0, available_copies + COALESCE(?, total_copies, available_copies) " +
+            "- COALESCE(total_copies, available_copies)), " +
+            "total_copies = COALESCE(?, total_copies) WHERE id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Page<BookSummary> findSummaries(Specification<Book> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookSummary> query = cb.createQuery(BookSummary.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(summaryOf(cb, root));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        List<BookSummary> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Book> countRoot = countQuery.from(Book.class);
+        countQuery.select(cb.count(countRoot));
+        Predicate countPredicate = spec == null ? null : spec.toPredicate(countRoot, countQuery, cb);
+        if (countPredicate != null) {
+            countQuery.where(countPredicate);
+        }
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+
+        fillCategories(content);
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public List<BookSummary> findSummariesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookSummary> query = cb.createQuery(BookSummary.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(summaryOf(cb, root)).where(root.get("id").in(ids));
+
+        Map<Long, BookSummary> byId = new HashMap<>();
+        for (BookSummary summary : entityManager.createQuery(query).getResultList()) {
+            byId.put(summary.getId(), summary);
+        }
+        List<BookSummary> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BookSummary summary = byId.get(id);
+            if (summary != null) {
+                ordered.add(summary);
+            }
+        }
+        fillCategories(ordered);
+        return ordered;
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsAfter(Collection<String> fields, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        query.multiselect(selectionsOf(fields, root))
+                .where(cb.greaterThan(root.get("id"), afterId))
+                .orderBy(cb.asc(root.get("id")));
+        return toMaps(fields, entityManager.createQuery(query).setMaxResults(limit).getResultList());
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIds(Collection<String> fields, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> root = query.from(Book.class);
+        query.multiselect(selectionsOf(fields, root)).where(root.get("id").in(ids));
+
+        Map<Object, Map<String, Object>> byId = new HashMap<>();
+        for (Map<String, Object> row : toMaps(fields, entityManager.createQuery(query).getResultList())) {
+            byId.put(row.get("id"), row);
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Map<String, Object> row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public int[] batchDecrementAvailableCopies(List<Long> ids) {
+        return jdbcTemplate.batchUpdate(
+                "UPDATE books SET available_copies = available_copies - 1 WHERE id = ? AND available_copies > 0",
+                idArgs(ids));
+    }
+
+    @Override
+    public int[] batchIncrementAvailableCopies(List<Long> ids) {
+        return jdbcTemplate.batchUpdate(
+                "UPDATE books SET available_copies = available_copies + 1 WHERE id = ? AND available_copies < total_copies",
+                idArgs(ids));
+    }
+
+    @Override
+    public void batchInsertBooks(List<Book> books) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_BOOK_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Book book = books.get(i);
+                        new ArgumentPreparedStatementSetter(new Object[]{
+                                book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublisher(),
+                                book.getPublishDate(), book.getPrice(), book.getTotalCopies(), book.getAvailableCopies(),
+                                book.getCoverImage(), book.getLocation(), book.getDescription()
+                        }).setValues(ps);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return books.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < books.size(); i++) {
+            // 各数据库驱动返回的主键列名不同（MySQL 为 GENERATED_KEY），只取值
+            books.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    @Override
+    public void batchUpdateImportedBooks(List<Book> books) {
+        List<Object[]> args = new ArrayList<>(books.size());
+        for (Book book : books) {
+            args.add(new Object[]{
+                    book.getTitle(), book.getAuthor(), book.getPublisher(), book.getPublishDate(), book.getPrice(),
+                    book.getDescription(), book.getTotalCopies(), book.getTotalCopies(), book.getId()
+            });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_IMPORTED_BOOK_SQL, args);
+    }
+
+    private static List<Object[]> idArgs(List<Long> ids) {
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            args.add(new Object[]{id});
+        }
+        return args;
+    }
+
+    private static Selection<BookSummary> summaryOf(CriteriaBuilder cb, Root<Book> root) {
+        return cb.construct(BookSummary.class,
+                root.get("id"), root.get("isbn"), root.get("title"), root.get("author"), root.get("publisher"),
+                root.get("price"), root.get("totalCopies"), root.get("availableCopies"), root.get("coverImage"));
+    }
+
+    // 用一条查询批量加载当前页图书的分类名称
+    private void fillCategories(List<BookSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        Map<Long, BookSummary> byId = new HashMap<>();
+        for (BookSummary summary : summaries) {
+            byId.put(summary.getId(), summary);
+        }
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT b.id, c.id, c.name FROM Book b JOIN b.categories c WHERE b.id IN :ids ORDER BY c.id",
+                        Object[].class)
+                .setParameter("ids", byId.keySet())
+                .getResultList();
+        for (Object[] row : rows) {
+            byId.get((Long) row[0]).getCategories().add(new CategorySummary((Long) row[1], (String) row[2]));
+        }
+    }
+
+    private static List<Selection<?>> selectionsOf(Collection<String> fields, Root<Book> root) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("不支持的字段: " + field);
+            }
+            selections.add(root.get(field).alias(field));
+        }
+        return selections;
+    }
+
+    private static List<Map<String, Object>> toMaps(Collection<String> fields, List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
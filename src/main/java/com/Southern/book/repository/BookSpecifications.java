@@ -0,0 +1,63 @@
+package com.Southern.book.repository;
+
+import com.Southern.book.entity.Book;
+import com.Southern.book.entity.Category;
+import jakarta.persistence.criteria.Join;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+// 图书多条件查询的Specification，筛选条件全部下推到SQL中执行
+public final class BookSpecifications {
+
+    private BookSpecifications() {}
+
+    // 关键词匹配书名、作者、ISBN、出版社（不区分大小写）
+    public static Specification<Book> keywordLike(String keyword) {
+        return (root, query, cb) -> {
+            if (keyword == null || keyword.trim().isEmpty()) {
+                return null;
+            }
+            String pattern = "%" + keyword.trim().toLowerCase() + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("title")), pattern),
+                    cb.like(cb.lower(root.get("author")), pattern),
+                    cb.like(cb.lower(root.get("isbn")), pattern),
+                    cb.like(cb.lower(root.get("publisher")), pattern));
+        };
+    }
+
+    // 按分类筛选，每本书在同一分类下只有一条关联，因此连接不会产生重复行
+    public static Specification<Book> inCategory(Long categoryId) {
+        return (root, query, cb) -> {
+            if (categoryId == null) {
+                return null;
+            }
+            Join<Book, Category> categories = root.join("categories");
+            return cb.equal(categories.get("id"), categoryId);
+        };
+    }
+
+    // 按借阅状态筛选：AVAILABLE 表示有可借副本，其它值表示无可借副本
+    public static Specification<Book> withStatus(String status) {
+        return (root, query, cb) -> {
+            if (status == null || status.isEmpty()) {
+                return null;
+            }
+            if ("AVAILABLE".equals(status)) {
+                return cb.greaterThan(root.get("availableCopies"), 0);
+            }
+            return cb.lessThanOrEqualTo(root.get("availableCopies"), 0);
+        };
+    }
+
+    // 限定在给定的图书ID集合内（由检索索引预先解析关键词得到）
+    public static Specification<Book> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    // 组合全部筛选条件
+    public static Specification<Book> search(String keyword, Long categoryId, String status) {
+        return Specification.allOf(keywordLike(keyword), inCategory(categoryId), withStatus(status));
+    }
+}
@@ -3,35 +3,143 @@ package com.Southern.book.repository;
 import com.Southern.book.entity.BorrowRecord;
 import com.Southern.book.entity.User;
 import com.Southern.book.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, Long> {
+public interface BorrowRecordRepository extends JpaRepository<BorrowRecord, Long>, BorrowRecordRepositoryCustom {
+    @EntityGraph("BorrowRecord.withUserAndBook")
     List<BorrowRecord> findByUser(User user);
     List<BorrowRecord> findByBook(Book book);
     List<BorrowRecord> findByStatus(String status);
+    @EntityGraph("BorrowRecord.withUserAndBook")
     List<BorrowRecord> findByDueDateBeforeAndStatusNot(LocalDate date, String status);
     
-    @Query("SELECT br FROM BorrowRecord br WHERE br.user.id = :userId AND br.book.id = :bookId AND br.status = 'BORROWED'")
+    @Query("SELECT br FROM BorrowRecord br WHERE br.user.id = :userId AND br.book.id = :bookId AND br.status <> 'RETURNED'")
     BorrowRecord findActiveBorrowByUserAndBook(@Param("userId") Long userId, @Param("bookId") Long bookId);
     
-    @Query("SELECT COUNT(br) FROM BorrowRecord br WHERE br.user.id = :userId AND br.status = 'BORROWED'")
+    @Query("SELECT COUNT(br) FROM BorrowRecord br WHERE br.user.id = :userId AND br.status <> 'RETURNED'")
     int countActiveBorrowsByUser(@Param("userId") Long userId);
     
     List<BorrowRecord> findByStatusNot(String status);
     
-    // 多条件搜索借阅记录
-    @Query("SELECT br FROM BorrowRecord br WHERE " +
-            "(:username IS NULL OR br.user.username LIKE CONCAT('%', :username, '%')) AND " +
-            "(:bookTitle IS NULL OR br.book.title LIKE CONCAT('%', :bookTitle, '%')) AND " +
+    // 逾期未更新状态的借阅记录ID（按ID游标分批），借出中的状态包括 ACTIVE 和早期数据中的 BORROWED
+    @Query("SELECT br.id FROM BorrowRecord br WHERE br.id > :afterId AND br.dueDate < :today " +
+            "AND br.status IN ('ACTIVE', 'BORROWED') ORDER BY br.id")
+    List<Long> findOverdueCandidateIds(@Param("afterId") Long afterId, @Param("today") LocalDate today,
+                                       Pageable pageable);
+    
+    // 批量标记为逾期，条件与查询一致，期间已归还的记录不会被修改
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.status = 'OVERDUE' WHERE br.id IN :ids AND br.dueDate < :today " +
+            "AND br.status IN ('ACTIVE', 'BORROWED')")
+    int markOverdue(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today);
+    
+    // 按ID加载借阅记录（同时加载用户和图书），不保证顺序
+    @EntityGraph("BorrowRecord.withUserAndBook")
+    List<BorrowRecord> findWithUserAndBookByIdIn(Collection<Long> ids);
+    
+    // 图书改名后同步借阅记录中的书名副本
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET br.searchBookTitle = :title WHERE br.book.id = :bookId")
+    int updateSearchBookTitle(@Param("bookId") Long bookId, @Param("title") String title);
+    
+    // 补齐缺少用户名、书名副本的记录（升级前的历史数据）
+    @Modifying
+    @Query("UPDATE BorrowRecord br SET " +
+            "br.searchUsername = (SELECT LOWER(TRIM(u.username)) FROM User u WHERE u.id = br.user.id), " +
+            "br.searchBookTitle = (SELECT LOWER(TRIM(b.title)) FROM Book b WHERE b.id = br.book.id) " +
+            "WHERE br.searchUsername IS NULL OR br.searchBookTitle IS NULL")
+    int backfillSearchColumns();
+    
+    // 所有未归还借阅的（借阅记录ID, 应还日期），用于加载逾期检测
+    @Query("SELECT br.id, br.dueDate FROM BorrowRecord br WHERE br.status <> 'RETURNED'")
+    List<Object[]> findActiveDueDates();
+    
+    // 逾期统计：记录数、总逾期天数、罚款合计、最早应还日期、逾期用户数，一条聚合查询完成
+    @Query("SELECT COUNT(br), SUM((:today - br.dueDate) BY DAY), SUM(br.fineAmount), MIN(br.dueDate), " +
+            "COUNT(DISTINCT br.user.id) FROM BorrowRecord br WHERE br.dueDate < :today AND br.status <> 'RETURNED'")
+    List<Object[]> summarizeOverdue(@Param("today") LocalDate today);
+    
+    // 个人借阅统计：按状态分组，每组返回（状态, 记录数, 已过应还日期的记录数, 借阅天数合计）
+    @Query("SELECT br.status, COUNT(br), " +
+            "SUM(CASE WHEN br.status = 'OVERDUE' OR br.dueDate < :today THEN 1 ELSE 0 END), " +
+            "SUM((br.returnDate - br.borrowDate) BY DAY) " +
+            "FROM BorrowRecord br WHERE br.user.id = :userId GROUP BY br.status")
+    List<Object[]> summarizeByUser(@Param("userId") Long userId, @Param("today") LocalDate today);
+    
+    // 个人借阅记录的一页（同时加载图书），总数取自统计查询，不再单独 COUNT
+    @EntityGraph(attributePaths = "book")
+    @Query("SELECT br FROM BorrowRecord br WHERE br.user.id = :userId")
+    List<BorrowRecord> findPageByUser(@Param("userId") Long userId, Pageable pageable);
+    
+    // 逾期记录的一页（同时加载用户和图书），排序由 Pageable 指定，总数取自逾期统计查询，不再单独 COUNT
+    @EntityGraph("BorrowRecord.withUserAndBook")
+    @Query("SELECT br FROM BorrowRecord br WHERE br.dueDate < :today AND br.status <> 'RETURNED'")
+    List<BorrowRecord> findOverdue(@Param("today") LocalDate today, Pageable pageable);
+    
+    // 逾期未归还的记录数
+    long countByDueDateBeforeAndStatusNot(LocalDate date, String status);
+    
+    // 状态不为指定值的记录数（未归还借阅数）
+    long countByStatusNot(String status);
+    
+    // 用户当前未归还的图书ID
+    @Query("SELECT br.book.id FROM BorrowRecord br WHERE br.user.id = :userId AND br.status <> 'RETURNED'")
+    List<Long> findActiveBookIdsByUser(@Param("userId") Long userId);
+    
+    // 用户对给定图书的未归还借阅（图书ID, 借阅记录ID）
+    @Query("SELECT br.book.id, br.id FROM BorrowRecord br " +
+            "WHERE br.user.id = :userId AND br.book.id IN :bookIds AND br.status <> 'RETURNED'")
+    List<Object[]> findActiveRecordIdsByUserAndBooks(@Param("userId") Long userId,
+                                                    @Param("bookIds") Collection<Long> bookIds);
+    
+    // 所有未归还借阅的（用户ID, 图书ID），用于校准借阅缓存
+    @Query("SELECT br.user.id, br.book.id FROM BorrowRecord br WHERE br.status <> 'RETURNED'")
+    List<Object[]> findActiveLoanPairs();
+    
+    // 原子归还：仅当记录尚未归还时才更新，返回受影响行数（0 表示已被归还）
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE BorrowRecord br SET br.status = 'RETURNED', br.returnDate = :returnDate, br.fineAmount = :fineAmount " +
+            "WHERE br.id = :id AND br.status <> 'RETURNED'")
+    int markReturned(@Param("id") Long id,
+                     @Param("returnDate") LocalDate returnDate,
+                     @Param("fineAmount") Double fineAmount);
+    
+    // 多条件搜索借阅记录（分页），只加载当前页的记录，总数由单独的计数查询得出，排序由 Pageable 指定。
+    // 用户名、书名按本表的小写副本匹配（调用方传入小写关键词），筛选不需要关联其他表
+    @EntityGraph("BorrowRecord.withUserAndBook")
+    @Query(value = "SELECT br FROM BorrowRecord br WHERE " +
+            "(:username IS NULL OR br.searchUsername LIKE CONCAT('%', :username, '%')) AND " +
+            "(:bookTitle IS NULL OR br.searchBookTitle LIKE CONCAT('%', :bookTitle, '%')) AND " +
+            "(:status IS NULL OR br.status = :status)",
+            countQuery = "SELECT COUNT(br) FROM BorrowRecord br WHERE " +
+            "(:username IS NULL OR br.searchUsername LIKE CONCAT('%', :username, '%')) AND " +
+            "(:bookTitle IS NULL OR br.searchBookTitle LIKE CONCAT('%', :bookTitle, '%')) AND " +
             "(:status IS NULL OR br.status = :status)")
-    List<BorrowRecord> searchBorrowRecords(@Param("username") String username,
+    Page<BorrowRecord> searchBorrowRecords(@Param("username") String username,
                                           @Param("bookTitle") String bookTitle, 
-                                          @Param("status") String status);
-}
\ No newline at end of file
+                                          @Param("status") String status,
+                                          Pageable pageable);
+    
+    // 导出用：按ID顺序流式读取借阅记录（MySQL 逐行流式读取，见 BookRepository.streamAllForExport），
+    // 用户和图书在同一条查询中取出，读取期间不再执行其他语句
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT br FROM BorrowRecord br JOIN FETCH br.user JOIN FETCH br.book ORDER BY br.id")
+    Stream<BorrowRecord> streamAllForExport();
+}
@@ -0,0 +1,28 @@
+package com.Southern.book.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// BorrowRecordRepository 的自定义操作：批量借阅、批量归还使用JDBC批处理写入
+public interface BorrowRecordRepositoryCustom {
+
+    // 插入一条借阅记录，状态为 ACTIVE，返回生成的ID；用户或图书不存在时返回 null
+    Long insertBorrowRecord(Long userId, Long bookId, LocalDate borrowDate, LocalDate dueDate);
+
+    // 为同一用户批量插入借阅记录，状态为 ACTIVE
+    void batchInsertBorrowRecords(Long userId, List<Long> bookIds, LocalDate borrowDate, LocalDate dueDate);
+
+    // 借助 n-gram 全文索引按用户名、书名子串搜索（MySQL，需 book.sql 中的 FULLTEXT ... WITH PARSER ngram 索引），
+    // 关键词为小写，返回当前页的借阅记录ID
+    Page<Long> searchIdsByFulltext(String username, String bookTitle, String status, Pageable pageable);
+
+    // 批量标记为已归还（仅更新尚未归还的记录），返回值与 ids 一一对应，1 表示更新成功
+    int[] batchMarkReturned(List<Long> ids, List<Double> fineAmounts, LocalDate returnDate);
+
+    // 批量同步借阅记录中的书名副本：图书ID -> 小写书名
+    void batchUpdateSearchBookTitles(Map<Long, String> titles);
+}
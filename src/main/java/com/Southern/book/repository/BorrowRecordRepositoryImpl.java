@@ -0,0 +1,132 @@
+package com.Southern.book.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BorrowRecordRepositoryImpl implements BorrowRecordRepositoryCustom {
+
+    // MySQL ngram_token_size 的默认值
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    // 全文检索路径可用的排序字段：实体属性 -> 列名
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "dueDate", "due_date",
+            "borrowDate", "borrow_date",
+            "searchUsername", "username",
+            "searchBookTitle", "book_title");
+
+    // 用户名、书名的小写副本从 users、books 中一并取出写入
+    private static final String INSERT_BORROW_RECORD_SQL = "INSERT INTO borrow_records " +
+            "(user_id, book_id, borrow_date, due_date, status, fine_amount, username, book_title) " +
+            "SELECT u.id, b.id, ?, ?, 'ACTIVE', 0, LOWER(TRIM(u.username)), LOWER(TRIM(b.title)) " +
+            "FROM users u, books b WHERE u.id = ? AND b.id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Long insertBorrowRecord(Long userId, Long bookId, LocalDate borrowDate, LocalDate dueDate) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_BORROW_RECORD_SQL, new String[]{"id"});
+            ps.setDate(1, Date.valueOf(borrowDate));
+            ps.setDate(2, Date.valueOf(dueDate));
+            ps.setLong(3, userId);
+            ps.setLong(4, bookId);
+            return ps;
+        }, keyHolder);
+        Number id = keyHolder.getKey();
+        return inserted == 0 || id == null ? null : id.longValue();
+    }
+
+    @Override
+    public void batchInsertBorrowRecords(Long userId, List<Long> bookIds, LocalDate borrowDate, LocalDate dueDate) {
+        List<Object[]> args = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            args.add(new Object[]{Date.valueOf(borrowDate), Date.valueOf(dueDate), userId, bookId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_BORROW_RECORD_SQL, args);
+    }
+
+    @Override
+    public Page<Long> searchIdsByFulltext(String username, String bookTitle, String status, Pageable pageable) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendSubstringMatch(where, args, "username", username);
+        appendSubstringMatch(where, args, "book_title", bookTitle);
+        if (status != null) {
+            where.append(" AND status = ?");
+            args.add(status);
+        }
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM borrow_records" + where, Long.class, args.toArray());
+        StringBuilder sql = new StringBuilder("SELECT id FROM borrow_records").append(where).append(orderBy(pageable.getSort()));
+        List<Object> pageArgs = new ArrayList<>(args);
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT ? OFFSET ?");
+            pageArgs.add(pageable.getPageSize());
+            pageArgs.add(pageable.getOffset());
+        }
+        List<Long> ids = jdbcTemplate.queryForList(sql.toString(), Long.class, pageArgs.toArray());
+        return new PageImpl<>(ids, pageable, total == null ? 0 : total);
+    }
+
+    // 关键词长度不小于 n-gram 长度（默认2）时用全文索引的短语匹配，单个字符退回 LIKE
+    private static void appendSubstringMatch(StringBuilder where, List<Object> args, String column, String keyword) {
+        if (keyword == null) {
+            return;
+        }
+        if (keyword.length() >= NGRAM_TOKEN_SIZE) {
+            where.append(" AND MATCH(").append(column).append(") AGAINST (? IN BOOLEAN MODE)");
+            args.add("\"" + keyword.replace("\"", " ") + "\"");
+        } else {
+            where.append(" AND ").append(column).append(" LIKE ?");
+            args.add("%" + keyword + "%");
+        }
+    }
+
+    private static String orderBy(Sort sort) {
+        StringBuilder sb = new StringBuilder();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("不支持的排序字段: " + order.getProperty());
+            }
+            sb.append(sb.length() == 0 ? " ORDER BY " : ", ").append(column).append(order.isAscending() ? " ASC" : " DESC");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int[] batchMarkReturned(List<Long> ids, List<Double> fineAmounts, LocalDate returnDate) {
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            args.add(new Object[]{Date.valueOf(returnDate), fineAmounts.get(i), ids.get(i)});
+        }
+        return jdbcTemplate.batchUpdate("UPDATE borrow_records SET status = 'RETURNED', return_date = ?, fine_amount = ? " +
+                "WHERE id = ? AND status <> 'RETURNED'", args);
+    }
+
+    @Override
+    public void batchUpdateSearchBookTitles(Map<Long, String> titles) {
+        List<Object[]> args = new ArrayList<>(titles.size());
+        for (Map.Entry<Long, String> entry : titles.entrySet()) {
+            args.add(new Object[]{entry.getValue(), entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate("UPDATE borrow_records SET book_title = ? WHERE book_id = ?", args);
+    }
+}
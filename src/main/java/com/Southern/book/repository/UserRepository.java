@@ -1,14 +1,64 @@
 package com.Southern.book.repository;
 
 import com.Southern.book.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    
+    // 登录认证时连同角色一次查询出来
+    @EntityGraph("User.withRoles")
+    Optional<User> findWithRolesByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+    
+    // 原子占用借阅名额：仅当当前借阅数量小于上限时加一，返回受影响行数（0 表示用户不存在或已达上限）
+    @Modifying
+    @Query("UPDATE User u SET u.activeBorrowCount = u.activeBorrowCount + 1 WHERE u.id = :id AND u.activeBorrowCount < :limit")
+    int incrementActiveBorrowCount(@Param("id") Long id, @Param("limit") int limit);
+    
+    // 原子占用多个借阅名额（批量借阅），占用后不超过上限时才更新
+    @Modifying
+    @Query("UPDATE User u SET u.activeBorrowCount = u.activeBorrowCount + :count " +
+            "WHERE u.id = :id AND u.activeBorrowCount + :count <= :limit")
+    int incrementActiveBorrowCountBy(@Param("id") Long id, @Param("count") int count, @Param("limit") int limit);
+    
+    // 原子释放多个借阅名额，最少减到0
+    @Modifying
+    @Query("UPDATE User u SET u.activeBorrowCount = " +
+            "CASE WHEN u.activeBorrowCount > :count THEN u.activeBorrowCount - :count ELSE 0 END WHERE u.id = :id")
+    int decrementActiveBorrowCountBy(@Param("id") Long id, @Param("count") int count);
+    
+    // 原子释放借阅名额
+    @Modifying
+    @Query("UPDATE User u SET u.activeBorrowCount = u.activeBorrowCount - 1 WHERE u.id = :id AND u.activeBorrowCount > 0")
+    int decrementActiveBorrowCount(@Param("id") Long id);
+    
+    // 按借阅记录重新计算所有用户的借阅数量（启动时校准）
+    @Modifying
+    @Query("UPDATE User u SET u.activeBorrowCount = " +
+            "(SELECT COUNT(br) FROM BorrowRecord br WHERE br.user.id = u.id AND br.status <> 'RETURNED')")
+    int reconcileActiveBorrowCounts();
+    
+    // 导出用：按ID顺序流式读取（用户ID, 用户名, 邮箱, 姓名, 是否启用, 角色名），每个角色一行，没有角色时角色名为 null；
+    // includeInactive 为 false 时跳过已停用的用户。MySQL 逐行流式读取（见 BookRepository.streamAllForExport），
+    // 读取期间不能再查询角色，因此角色在同一条查询中取出
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u.id, u.username, u.email, u.fullName, u.enabled, r.name FROM User u LEFT JOIN u.roles r " +
+            "WHERE :includeInactive = true OR u.enabled = true ORDER BY u.id")
+    Stream<Object[]> streamForExport(@Param("includeInactive") boolean includeInactive);
+}
@@ -0,0 +1,26 @@
+package com.Southern.book.search;
+
+import com.Southern.book.entity.Book;
+
+// 图书新增、修改或删除后发布的事件，事务提交后用于增量更新检索索引
+public class BookChangedEvent {
+    private final Long bookId;
+    private final Book book;
+
+    private BookChangedEvent(Long bookId, Book book) {
+        this.bookId = bookId;
+        this.book = book;
+    }
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(book.getId(), book);
+    }
+
+    public static BookChangedEvent deleted(Long bookId) {
+        return new BookChangedEvent(bookId, null);
+    }
+
+    public Long getBookId() { return bookId; }
+    public Book getBook() { return book; }
+    public boolean isDeleted() { return book == null; }
+}
@@ -0,0 +1,343 @@
+package com.Southern.book.search;
+
+import com.Southern.book.entity.Book;
+import com.Southern.book.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 图书内存倒排索引：对书名、作者、出版社、ISBN、简介建立索引，
+// 启动时全量构建，之后随 BookService 的增删改在事务提交后增量更新
+@Component
+public class BookSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    // 索引字段，顺序即词频数组的下标
+    public enum Field { TITLE, AUTHOR, PUBLISHER, ISBN, DESCRIPTION }
+
+    static final int FIELD_COUNT = Field.values().length;
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // 各字段权重，下标与 Field 对应：书名和作者的匹配比简介更重要
+    private static final double[] FIELD_BOOSTS = {3.0, 2.0, 1.0, 1.5, 0.5};
+    // 通过前缀扩展命中的词项相对完整命中打折
+    private static final double PREFIX_MATCH_WEIGHT = 0.8;
+
+    // 排名顺序：得分低者、得分相同时ID大者排在前面，堆顶即当前最差的结果
+    private static final Comparator<Map.Entry<Long, Double>> WORST_FIRST =
+            Map.Entry.<Long, Double>comparingByValue()
+                    .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下字段均受 lock 保护
+    private IndexData data = new IndexData();
+    private boolean ready = false;
+    private boolean rebuilding = false;
+    private final Map<Long, Book> pendingChanges = new LinkedHashMap<>();
+
+    // 应用启动完成后全量构建索引
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // 全量重建索引，重建期间提交的变更会被暂存并在切换前重放，避免丢失
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            pendingChanges.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        IndexData fresh = new IndexData();
+        try {
+            for (Book book : bookRepository.findAll()) {
+                fresh.add(book);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                pendingChanges.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Book> change : pendingChanges.entrySet()) {
+                fresh.remove(change.getKey());
+                if (change.getValue() != null) {
+                    fresh.add(change.getValue());
+                }
+            }
+            pendingChanges.clear();
+            data = fresh;
+            rebuilding = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("图书检索索引构建完成：{} 本图书，{} 个词项，耗时 {} ms",
+                fresh.docs.size(), fresh.postings.size(), System.currentTimeMillis() - start);
+    }
+
+    // 图书变更事务提交后增量更新索引
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.getBookId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                pendingChanges.put(event.getBookId(), event.getBook());
+            }
+            data.remove(event.getBookId());
+            if (!event.isDeleted()) {
+                data.add(event.getBook());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 索引是否已完成首次构建，未就绪时调用方应回退到数据库查询
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 查询匹配的图书ID：查询词之间为“与”关系，每个查询词按前缀匹配索引词项，结果按ID升序
+    public List<Long> search(String query) {
+        List<String> terms = BookTokenizer.tokenizeForQuery(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<Long> result = null;
+            for (String term : new LinkedHashSet<>(terms)) {
+                Set<Long> matched = new HashSet<>();
+                for (Map<Long, int[]> postingList : data.prefixPostings(term).values()) {
+                    if (result == null) {
+                        matched.addAll(postingList.keySet());
+                    } else {
+                        for (Long id : postingList.keySet()) {
+                            if (result.contains(id)) {
+                                matched.add(id);
+                            }
+                        }
+                    }
+                }
+                result = matched;
+                if (result.isEmpty()) {
+                    return List.of();
+                }
+            }
+            List<Long> ids = new ArrayList<>(result);
+            Collections.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 计算每本匹配图书的BM25相关度得分：查询词之间为“与”关系，
+    // 单个查询词的得分为各字段BM25得分按字段权重加权求和，前缀扩展出的多个词项取最高分
+    public Map<Long, Double> score(String query) {
+        List<String> terms = BookTokenizer.tokenizeForQuery(query);
+        if (terms.isEmpty()) {
+            return Map.of();
+        }
+        lock.readLock().lock();
+        try {
+            int docCount = data.docs.size();
+            double[] avgFieldLengths = new double[FIELD_COUNT];
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                avgFieldLengths[f] = docCount == 0 ? 1.0 : Math.max(1.0, (double) data.totalFieldLengths[f] / docCount);
+            }
+
+            Map<Long, Double> scores = null;
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map.Entry<String, Map<Long, int[]>> entry : data.prefixPostings(term).entrySet()) {
+                    Map<Long, int[]> postingList = entry.getValue();
+                    int df = postingList.size();
+                    double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                    double weight = entry.getKey().equals(term) ? idf : idf * PREFIX_MATCH_WEIGHT;
+                    for (Map.Entry<Long, int[]> posting : postingList.entrySet()) {
+                        Long id = posting.getKey();
+                        if (scores != null && !scores.containsKey(id)) {
+                            continue;
+                        }
+                        double s = weight * fieldScore(posting.getValue(), data.docs.get(id).fieldLengths, avgFieldLengths);
+                        termScores.merge(id, s, Math::max);
+                    }
+                }
+                if (scores != null) {
+                    for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                        entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+                    }
+                }
+                scores = termScores;
+                if (scores.isEmpty()) {
+                    return Map.of();
+                }
+            }
+            return scores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 按相关度返回前 k 个图书ID，候选集合为 null 时不做限制。
+    // 使用大小为 k 的小顶堆，只保留当前最好的 k 个结果，不对全部匹配结果排序
+    public static List<Long> topK(Map<Long, Double> scores, Collection<Long> candidates, int k) {
+        if (k <= 0 || scores.isEmpty()) {
+            return List.of();
+        }
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(Math.min(k, scores.size()) + 1, WORST_FIRST);
+        Iterable<Long> ids = candidates != null ? candidates : scores.keySet();
+        for (Long id : ids) {
+            Double score = scores.get(id);
+            if (score == null) {
+                continue;
+            }
+            Map.Entry<Long, Double> hit = Map.entry(id, score);
+            if (heap.size() < k) {
+                heap.offer(hit);
+            } else if (WORST_FIRST.compare(hit, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(hit);
+            }
+        }
+        Long[] ranked = new Long[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = heap.poll().getKey();
+        }
+        return Arrays.asList(ranked);
+    }
+
+    private static double fieldScore(int[] tf, int[] fieldLengths, double[] avgFieldLengths) {
+        double s = 0;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if (tf[f] == 0) {
+                continue;
+            }
+            double norm = 1 - B + B * fieldLengths[f] / avgFieldLengths[f];
+            s += FIELD_BOOSTS[f] * tf[f] * (K1 + 1) / (tf[f] + K1 * norm);
+        }
+        return s;
+    }
+
+    // 已索引的图书数量
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return data.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 索引数据：词项 -> (图书ID -> 各字段词频)，以及每本书的词项集合和字段长度
+    static class IndexData {
+        final TreeMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+        final Map<Long, DocEntry> docs = new HashMap<>();
+        final long[] totalFieldLengths = new long[FIELD_COUNT];
+
+        void add(Book book) {
+            if (book.getId() == null) {
+                return;
+            }
+            DocEntry doc = new DocEntry();
+            indexField(book.getId(), doc, Field.TITLE, BookTokenizer.tokenizeForIndex(book.getTitle()));
+            indexField(book.getId(), doc, Field.AUTHOR, BookTokenizer.tokenizeForIndex(book.getAuthor()));
+            indexField(book.getId(), doc, Field.PUBLISHER, BookTokenizer.tokenizeForIndex(book.getPublisher()));
+            List<String> isbnTokens = BookTokenizer.tokenizeForIndex(book.getIsbn());
+            String normalizedIsbn = BookTokenizer.normalize(book.getIsbn());
+            if (!normalizedIsbn.isEmpty() && !isbnTokens.contains(normalizedIsbn)) {
+                isbnTokens.add(normalizedIsbn);
+            }
+            indexField(book.getId(), doc, Field.ISBN, isbnTokens);
+            indexField(book.getId(), doc, Field.DESCRIPTION, BookTokenizer.tokenizeForIndex(book.getDescription()));
+            docs.put(book.getId(), doc);
+        }
+
+        void remove(Long bookId) {
+            DocEntry doc = docs.remove(bookId);
+            if (doc == null) {
+                return;
+            }
+            for (String term : doc.terms) {
+                Map<Long, int[]> postingList = postings.get(term);
+                if (postingList != null) {
+                    postingList.remove(bookId);
+                    if (postingList.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                totalFieldLengths[f] -= doc.fieldLengths[f];
+            }
+        }
+
+        Map<String, Map<Long, int[]>> prefixPostings(String prefix) {
+            return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        }
+
+        private void indexField(Long bookId, DocEntry doc, Field field, List<String> tokens) {
+            int f = field.ordinal();
+            for (String token : tokens) {
+                int[] tf = postings.computeIfAbsent(token, t -> new HashMap<>())
+                        .computeIfAbsent(bookId, id -> new int[FIELD_COUNT]);
+                tf[f]++;
+                doc.terms.add(token);
+            }
+            doc.fieldLengths[f] = tokens.size();
+            totalFieldLengths[f] += tokens.size();
+        }
+    }
+
+    static class DocEntry {
+        final Set<String> terms = new HashSet<>();
+        final int[] fieldLengths = new int[FIELD_COUNT];
+    }
+}
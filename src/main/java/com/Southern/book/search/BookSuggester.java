@@ -0,0 +1,155 @@
+package com.Southern.book.search;
+
+import com.Southern.book.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// 搜索联想：把书名、作者、ISBN规范化后放入按键排序的不可变数组，前缀查询通过二分查找定位。
+// 数组由后台定时任务从 BookRepository 重建，图书变更后标记为过期，下一轮定时任务再重建
+@Component
+public class BookSuggester {
+    private static final Logger log = LoggerFactory.getLogger(BookSuggester.class);
+
+    // 单次查询最多扫描的前缀匹配条目数，保证短前缀的查询耗时也有上限
+    private static final int MAX_SCAN = 2000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean stale = true;
+
+    // 定时检查，索引过期（首次启动或图书发生变更）时在后台重建
+    @Scheduled(initialDelay = 0, fixedDelayString = "${book.suggest.refresh-interval-ms:30000}")
+    public void refreshIfStale() {
+        if (stale) {
+            rebuild();
+        }
+    }
+
+    // 图书变更事务提交后标记联想数据过期
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        stale = true;
+    }
+
+    // 从数据库重建联想数据，构建完成后整体替换，查询始终读到完整的快照
+    public void rebuild() {
+        stale = false;
+        long start = System.currentTimeMillis();
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            for (Object[] row : bookRepository.findSuggestionSources()) {
+                collect(entries, (String) row[0], BookSuggestion.Type.TITLE);
+                collect(entries, (String) row[1], BookSuggestion.Type.AUTHOR);
+                collect(entries, (String) row[2], BookSuggestion.Type.ISBN);
+            }
+        } catch (RuntimeException e) {
+            stale = true;
+            log.warn("搜索联想数据构建失败: {}", e.getMessage());
+            return;
+        }
+        Entry[] sorted = entries.values().toArray(new Entry[0]);
+        Arrays.sort(sorted, (a, b) -> a.key.compareTo(b.key));
+        snapshot = new Snapshot(sorted);
+        log.debug("搜索联想数据构建完成：{} 条，耗时 {} ms", sorted.length, System.currentTimeMillis() - start);
+    }
+
+    // 返回以 prefix 开头的前 limit 条联想，按出现次数降序
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        String key = BookTokenizer.normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1,
+                (a, b) -> current.weights[a] != current.weights[b]
+                        ? Integer.compare(current.weights[a], current.weights[b])
+                        : Integer.compare(b, a));
+        int start = current.lowerBound(key);
+        int end = Math.min(current.keys.length, start + MAX_SCAN);
+        for (int i = start; i < end && current.keys[i].startsWith(key); i++) {
+            heap.offer(i);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        BookSuggestion[] result = new BookSuggestion[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            int idx = heap.poll();
+            result[i] = new BookSuggestion(current.texts[idx], current.types[idx]);
+        }
+        return Arrays.asList(result);
+    }
+
+    private static void collect(Map<String, Entry> entries, String text, BookSuggestion.Type type) {
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+        String key = BookTokenizer.normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        entries.computeIfAbsent(type.ordinal() + ":" + key, k -> new Entry(key, text.trim(), type)).weight++;
+    }
+
+    private static class Entry {
+        final String key;
+        final String text;
+        final BookSuggestion.Type type;
+        int weight;
+
+        Entry(String key, String text, BookSuggestion.Type type) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+        }
+    }
+
+    // 不可变快照：keys 有序，其余数组与之按下标一一对应
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new Entry[0]);
+
+        final String[] keys;
+        final String[] texts;
+        final BookSuggestion.Type[] types;
+        final int[] weights;
+
+        Snapshot(Entry[] sorted) {
+            keys = new String[sorted.length];
+            texts = new String[sorted.length];
+            types = new BookSuggestion.Type[sorted.length];
+            weights = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sorted[i].key;
+                texts[i] = sorted[i].text;
+                types[i] = sorted[i].type;
+                weights[i] = sorted[i].weight;
+            }
+        }
+
+        int lowerBound(String key) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
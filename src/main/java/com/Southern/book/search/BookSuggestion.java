@@ -0,0 +1,17 @@
+package com.Southern.book.search;
+
+// 搜索联想结果：联想文本及其来源（书名、作者或ISBN）
+public class BookSuggestion {
+    public enum Type { TITLE, AUTHOR, ISBN }
+
+    private final String text;
+    private final Type type;
+
+    public BookSuggestion(String text, Type type) {
+        this.text = text;
+        this.type = type;
+    }
+
+    public String getText() { return text; }
+    public Type getType() { return type; }
+}
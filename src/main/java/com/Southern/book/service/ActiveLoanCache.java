@@ -0,0 +1,171 @@
+package com.Southern.book.service;
+
+import com.Southern.book.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 用户在借图书缓存：用户ID -> 未归还的图书ID集合，借阅和归还时维护，
+// “是否已借该书”和“是否达到借阅上限”直接在内存中判断，不再每次查询 borrow_records。
+// 首次访问某用户时从数据库加载，定时任务按表中数据校准
+@Service
+public class ActiveLoanCache {
+    private static final Logger log = LoggerFactory.getLogger(ActiveLoanCache.class);
+
+    public enum Result { RESERVED, ALREADY_BORROWED, LIMIT_REACHED }
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final Map<Long, Loans> cache = new ConcurrentHashMap<>();
+
+    // 全局修改序号，校准时跳过查询开始后被修改过的用户
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 借阅前在内存中占位：已借该书或已达上限时不占位并返回原因。
+    // 在事务中调用时，事务回滚会撤销占位
+    public Result tryReserve(Long userId, Long bookId, int limit) {
+        Loans loans = load(userId);
+        synchronized (loans) {
+            if (loans.bookIds.contains(bookId)) {
+                return Result.ALREADY_BORROWED;
+            }
+            if (loans.bookIds.size() >= limit) {
+                return Result.LIMIT_REACHED;
+            }
+            loans.bookIds.add(bookId);
+            loans.modified = sequence.incrementAndGet();
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return Result.RESERVED;
+            }
+            loans.inFlight++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (loans) {
+                    loans.inFlight--;
+                    if (status != STATUS_COMMITTED) {
+                        loans.bookIds.remove(bookId);
+                    }
+                    loans.modified = sequence.incrementAndGet();
+                }
+            }
+        });
+        return Result.RESERVED;
+    }
+
+    // 立即撤销占位（批量借阅中后续步骤失败的单项）
+    public void cancel(Long userId, Long bookId) {
+        remove(userId, bookId);
+    }
+
+    // 归还后移除，在事务中调用时等事务提交后再生效
+    public void release(Long userId, Long bookId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(userId, bookId);
+                }
+            });
+        } else {
+            remove(userId, bookId);
+        }
+    }
+
+    // 用户是否正在借阅该书
+    public boolean isBorrowing(Long userId, Long bookId) {
+        Loans loans = load(userId);
+        synchronized (loans) {
+            return loans.bookIds.contains(bookId);
+        }
+    }
+
+    // 用户当前借阅数量
+    public int getActiveCount(Long userId) {
+        Loans loans = load(userId);
+        synchronized (loans) {
+            return loans.bookIds.size();
+        }
+    }
+
+    // 定时按 borrow_records 校准已缓存的用户；查询期间有借阅或归还在进行的用户留到下一轮
+    @Scheduled(initialDelayString = "${book.loan-cache.reconcile-interval-ms:600000}",
+            fixedDelayString = "${book.loan-cache.reconcile-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        if (cache.isEmpty()) {
+            return;
+        }
+        long startSequence = sequence.get();
+        Map<Long, Set<Long>> actual = new HashMap<>();
+        for (Object[] row : borrowRecordRepository.findActiveLoanPairs()) {
+            actual.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((Long) row[1]);
+        }
+        int corrected = 0;
+        for (Map.Entry<Long, Loans> entry : cache.entrySet()) {
+            Loans loans = entry.getValue();
+            synchronized (loans) {
+                if (loans.inFlight > 0 || loans.modified > startSequence) {
+                    continue;
+                }
+                Set<Long> expected = actual.getOrDefault(entry.getKey(), Set.of());
+                if (!loans.bookIds.equals(expected)) {
+                    loans.bookIds.clear();
+                    loans.bookIds.addAll(expected);
+                    corrected++;
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.warn("借阅缓存校准：修正了 {} 位用户的在借图书", corrected);
+        }
+    }
+
+    private Loans load(Long userId) {
+        Loans loans = cache.get(userId);
+        if (loans != null) {
+            return loans;
+        }
+        Loans loaded = new Loans(borrowRecordRepository.findActiveBookIdsByUser(userId));
+        loaded.modified = sequence.incrementAndGet();
+        Loans existing = cache.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void remove(Long userId, Long bookId) {
+        Loans loans = cache.get(userId);
+        if (loans == null) {
+            return;
+        }
+        synchronized (loans) {
+            loans.bookIds.remove(bookId);
+            loans.modified = sequence.incrementAndGet();
+        }
+    }
+
+    // 单个用户的在借图书，由对象锁保护；inFlight 为尚未结束的借阅事务数
+    private static class Loans {
+        final Set<Long> bookIds;
+        int inFlight;
+        long modified;
+
+        Loans(Iterable<Long> bookIds) {
+            this.bookIds = new HashSet<>();
+            bookIds.forEach(this.bookIds::add);
+        }
+    }
+}
@@ -1,39 +1,178 @@
 package com.Southern.book.service;
 
+import com.Southern.book.dto.BookOption;
+import com.Southern.book.dto.BookSummary;
+import com.Southern.book.dto.CursorPage;
 import com.Southern.book.entity.Book;
+import com.Southern.book.entity.BorrowRecord;
 import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BookSpecifications;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.search.BookChangedEvent;
+import com.Southern.book.search.BookSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    // 关键词命中的图书超过该数量时不再把ID列表作为 IN 条件下推，改用数据库中的关键词匹配
+    private static final int MAX_ID_FILTER_SIZE = 1000;
+
+    // 按相关度分页时，分类和状态条件每批筛选的命中数
+    private static final int FILTER_BATCH_SIZE = 500;
+
     // 获取所有图书
     public List<Book> getAllBooks() {
         return bookRepository.findAll();
     }
 
+    // 游标分页获取图书，多取一条用于判断是否还有下一页
+    public CursorPage<Book> getBooksAfter(Long afterId, int limit) {
+        List<Book> fetched = bookRepository.findPageAfter(afterId, PageRequest.ofSize(limit + 1));
+        return CursorPage.of(fetched, limit, Book::getId);
+    }
+
     // 根据ID查找图书
     public Optional<Book> getBookById(Long id) {
         return bookRepository.findById(id);
     }
 
+    // 根据ID查找图书，同时加载分类
+    public Optional<Book> getBookWithCategoriesById(Long id) {
+        return bookRepository.findWithCategoriesById(id);
+    }
+
     // 添加图书
     @Transactional
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+        dashboardCounters.booksChanged(1, countIfAvailable(saved));
+        return saved;
+    }
+
+    // 批量添加图书（导入）：一个事务、一次JDBC批量插入，提交后逐本更新检索索引。
+    // 未给出册数时按1册，未给出可借册数时与总册数相同
+    @Transactional
+    public List<Book> addBooks(List<Book> books) {
+        for (Book book : books) {
+            if (book.getTotalCopies() == null) {
+                book.setTotalCopies(1);
+            }
+            if (book.getAvailableCopies() == null) {
+                book.setAvailableCopies(book.getTotalCopies());
+            }
+        }
+        bookRepository.batchInsertBooks(books);
+        int available = 0;
+        for (Book book : books) {
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
+            available += countIfAvailable(book);
+        }
+        dashboardCounters.booksChanged(books.size(), available);
+        return books;
+    }
+
+    // 按ISBN批量导入（有则更新，无则新增）：一次 IN 查询找出并锁定已存在的图书，已存在的批量更新、其余批量插入，
+    // 返回更新的本数。书名变更时同步借阅记录中的书名副本；更新后按ID重新读取一次，按库中的最终数据更新检索索引和可借计数
+    @Transactional
+    public int upsertBooks(List<Book> books) {
+        Set<String> isbns = new HashSet<>();
+        for (Book book : books) {
+            if (book.getIsbn() != null) {
+                isbns.add(book.getIsbn());
+            }
+        }
+        Map<String, Object[]> existing = new HashMap<>();
+        if (!isbns.isEmpty()) {
+            for (Object[] row : bookRepository.lockByIsbnIn(isbns)) {
+                existing.put((String) row[1], row);
+            }
+        }
+
+        List<Book> inserts = new ArrayList<>();
+        List<Book> updates = new ArrayList<>();
+        Map<Long, String> renamed = new HashMap<>();
+        int wasAvailable = 0;
+        for (Book book : books) {
+            Object[] row = book.getIsbn() == null ? null : existing.get(book.getIsbn());
+            if (row == null) {
+                inserts.add(book);
+                continue;
+            }
+            book.setId((Long) row[0]);
+            updates.add(book);
+            if (row[3] != null && (Integer) row[3] > 0) {
+                wasAvailable++;
+            }
+            if (!Objects.equals(row[2], book.getTitle())) {
+                renamed.put(book.getId(), BorrowRecord.searchKey(book.getTitle()));
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            addBooks(inserts);
+        }
+        if (!updates.isEmpty()) {
+            bookRepository.batchUpdateImportedBooks(updates);
+            if (!renamed.isEmpty()) {
+                borrowRecordRepository.batchUpdateSearchBookTitles(renamed);
+            }
+            int available = 0;
+            for (Book saved : bookRepository.findAllById(updates.stream().map(Book::getId).toList())) {
+                eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+                available += countIfAvailable(saved);
+            }
+            dashboardCounters.booksChanged(0, available - wasAvailable);
+        }
+        return updates.size();
     }
 
     // 更新图书
     @Transactional
     public Optional<Book> updateBook(Long id, Book bookDetails) {
         return bookRepository.findById(id).map(book -> {
+            int wasAvailable = countIfAvailable(book);
+            if (!Objects.equals(book.getTitle(), bookDetails.getTitle())) {
+                // 书名变更时同步借阅记录中的书名副本
+                borrowRecordRepository.updateSearchBookTitle(id, BorrowRecord.searchKey(bookDetails.getTitle()));
+            }
             book.setTitle(bookDetails.getTitle());
             book.setAuthor(bookDetails.getAuthor());
             book.setIsbn(bookDetails.getIsbn());
@@ -46,7 +185,10 @@ public class BookService {
             book.setLocation(bookDetails.getLocation());
             book.setDescription(bookDetails.getDescription());
             book.setCategories(bookDetails.getCategories());
-            return bookRepository.save(book);
+            Book saved = bookRepository.save(book);
+            eventPublisher.publishEvent(BookChangedEvent.saved(saved));
+            dashboardCounters.booksChanged(0, countIfAvailable(saved) - wasAvailable);
+            return saved;
         });
     }
 
@@ -55,54 +197,174 @@ public class BookService {
     public boolean deleteBook(Long id) {
         return bookRepository.findById(id).map(book -> {
             bookRepository.delete(book);
+            eventPublisher.publishEvent(BookChangedEvent.deleted(id));
+            dashboardCounters.booksChanged(-1, -countIfAvailable(book));
             return true;
         }).orElse(false);
     }
 
-    // 搜索图书（简单关键词搜索）
-    public List<Book> searchBooks(String keyword) {
+    // 搜索图书（简单关键词搜索），按ID顺序返回前 limit 本；优先使用内存倒排索引，索引未就绪时回退到数据库查询
+    public List<Book> searchBooks(String keyword, int limit) {
         if (keyword == null || keyword.trim().isEmpty()) {
-            return getAllBooks();
+            return bookRepository.findAll(PageRequest.of(0, limit, Sort.by("id"))).getContent();
         }
-        return bookRepository.searchBooks(keyword.trim());
+        if (!bookSearchIndex.isReady()) {
+            return bookRepository.searchBooks(keyword.trim(), PageRequest.of(0, limit, Sort.by("id")));
+        }
+        return findAllByIdInOrder(firstN(bookSearchIndex.search(keyword), limit));
+    }
+    
+    // 按相关度返回前 limit 本图书
+    public List<Book> searchBooksByRelevance(String keyword, int limit) {
+        if (keyword == null || keyword.trim().isEmpty() || !bookSearchIndex.isReady()) {
+            return searchBooks(keyword, limit);
+        }
+        return findAllByIdInOrder(BookSearchIndex.topK(bookSearchIndex.score(keyword), null, limit));
+    }
+
+    // 多条件搜索并按相关度分页：只对当前页之前的结果做有界堆选择，不对全部匹配结果排序
+    public Page<BookSummary> searchBookSummariesByRelevance(String keyword, Long categoryId, String status, Pageable pageable) {
+        if (keyword == null || keyword.trim().isEmpty() || !bookSearchIndex.isReady()) {
+            return searchBookSummaries(keyword, categoryId, status, pageable);
+        }
+        Map<Long, Double> scores = bookSearchIndex.score(keyword);
+        if (scores.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        int needed = (int) pageable.getOffset() + pageable.getPageSize();
+        List<Long> ranked;
+        long total;
+        if (categoryId == null && (status == null || status.isEmpty())) {
+            ranked = BookSearchIndex.topK(scores, null, needed);
+            total = scores.size();
+        } else {
+            Set<Long> passed = filterHits(scores.keySet(), categoryId, status);
+            ranked = BookSearchIndex.topK(scores, passed, needed);
+            total = passed.size();
+        }
+        if (pageable.getOffset() >= ranked.size()) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+        List<Long> pageIds = ranked.subList((int) pageable.getOffset(), Math.min(needed, ranked.size()));
+        return new PageImpl<>(bookRepository.findSummariesByIds(pageIds), pageable, total);
+    }
+
+    // 在数据库中按分类和状态筛选关键词的全部命中，每批 FILTER_BATCH_SIZE 个ID，不把全部命中作为一个 IN 条件；
+    // 命中数受检索索引限制，返回通过筛选的ID集合，其大小即准确的总数
+    private Set<Long> filterHits(Collection<Long> hits, Long categoryId, String status) {
+        String statusFilter = status == null || status.isEmpty() ? null : status;
+        List<Long> ids = new ArrayList<>(hits);
+        Set<Long> passed = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += FILTER_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + FILTER_BATCH_SIZE, ids.size()));
+            passed.addAll(bookRepository.filterIds(batch, categoryId, statusFilter));
+        }
+        return passed;
     }
     
     // 多条件搜索图书
     public List<Book> searchBooks(String keyword, Long categoryId, String status) {
-        List<Book> books = getAllBooks();
-        
-        // 应用筛选条件
-        if (books != null && !books.isEmpty()) {
-            // 关键词筛选
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                String lowerKeyword = keyword.trim().toLowerCase();
-                books = books.stream()
-                    .filter(book -> book.getTitle().toLowerCase().contains(lowerKeyword) ||
-                            book.getAuthor().toLowerCase().contains(lowerKeyword) ||
-                            (book.getIsbn() != null && book.getIsbn().toLowerCase().contains(lowerKeyword)) ||
-                            (book.getPublisher() != null && book.getPublisher().toLowerCase().contains(lowerKeyword)))
-                    .collect(java.util.stream.Collectors.toList());
-            }
-            
-            // 分类筛选
-            if (categoryId != null) {
-                books = books.stream()
-                    .filter(book -> book.getCategories() != null && 
-                            book.getCategories().stream()
-                                .anyMatch(category -> category.getId().equals(categoryId)))
-                    .collect(java.util.stream.Collectors.toList());
-            }
-            
-            // 状态筛选
-            if (status != null && !status.isEmpty()) {
-                boolean isAvailable = "AVAILABLE".equals(status);
-                books = books.stream()
-                    .filter(book -> (isAvailable && book.getAvailableCopies() > 0) ||
-                            (!isAvailable && book.getAvailableCopies() <= 0))
-                    .collect(java.util.stream.Collectors.toList());
-            }
-        }
-        
+        Specification<Book> spec = buildSearchSpecification(keyword, categoryId, status);
+        if (spec == null) {
+            return List.of();
+        }
+        return bookRepository.findAll(spec);
+    }
+
+    // 多条件分页搜索图书摘要，只查询列表页需要的列。只有关键词且按ID排序时，
+    // 检索索引的命中列表本身就是有序结果，在内存中分页后只把当前页的ID交给数据库；其余情况筛选与分页均在数据库中完成
+    public Page<BookSummary> searchBookSummaries(String keyword, Long categoryId, String status, Pageable pageable) {
+        if (keyword != null && !keyword.trim().isEmpty() && bookSearchIndex.isReady()
+                && categoryId == null && (status == null || status.isEmpty()) && sortedById(pageable.getSort())) {
+            List<Long> ids = bookSearchIndex.search(keyword);
+            long offset = pageable.getOffset();
+            if (offset >= ids.size()) {
+                return new PageImpl<>(List.of(), pageable, ids.size());
+            }
+            List<Long> pageIds = ids.subList((int) offset, (int) Math.min(offset + pageable.getPageSize(), ids.size()));
+            return new PageImpl<>(bookRepository.findSummariesByIds(pageIds), pageable, ids.size());
+        }
+        Specification<Book> spec = buildSearchSpecification(keyword, categoryId, status);
+        if (spec == null) {
+            return Page.empty(pageable);
+        }
+        return bookRepository.findSummaries(spec, pageable);
+    }
+
+    // 游标分页获取图书的指定字段（稀疏字段集），ID总是包含在结果中用于生成游标
+    public CursorPage<Map<String, Object>> getBookFieldsAfter(List<String> fields, Long afterId, int limit) {
+        List<Map<String, Object>> fetched = bookRepository.findFieldsAfter(withId(fields), afterId, limit + 1);
+        return CursorPage.of(fetched, limit, row -> (Long) row.get("id"));
+    }
+
+    // 关键词搜索并只返回指定字段，byRelevance 为 true 时按相关度返回前 limit 条
+    public List<Map<String, Object>> searchBookFields(String keyword, List<String> fields, boolean byRelevance, int limit) {
+        List<Long> ids;
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return List.of();
+        } else if (!bookSearchIndex.isReady()) {
+            ids = bookRepository.searchBooks(keyword.trim(), PageRequest.of(0, limit, Sort.by("id")))
+                    .stream().map(Book::getId).toList();
+        } else if (byRelevance) {
+            ids = BookSearchIndex.topK(bookSearchIndex.score(keyword), null, limit);
+        } else {
+            ids = firstN(bookSearchIndex.search(keyword), limit);
+        }
+        return bookRepository.findFieldsByIds(withId(fields), ids);
+    }
+
+    private static List<String> withId(List<String> fields) {
+        if (fields.contains("id")) {
+            return fields;
+        }
+        List<String> result = new ArrayList<>(fields.size() + 1);
+        result.add("id");
+        result.addAll(fields);
+        return result;
+    }
+
+    private static boolean sortedById(Sort sort) {
+        return sort.isUnsorted() || sort.equals(Sort.by("id"));
+    }
+
+    private static <T> List<T> firstN(List<T> list, int n) {
+        return list.size() > n ? list.subList(0, n) : list;
+    }
+
+    // 关键词由倒排索引解析为图书ID集合，分类和状态条件仍在数据库中筛选；没有任何匹配时返回null。
+    // 命中过多时ID列表不下推，改用数据库中的关键词匹配
+    private Specification<Book> buildSearchSpecification(String keyword, Long categoryId, String status) {
+        if (keyword == null || keyword.trim().isEmpty() || !bookSearchIndex.isReady()) {
+            return BookSpecifications.search(keyword, categoryId, status);
+        }
+        List<Long> ids = bookSearchIndex.search(keyword);
+        if (ids.isEmpty()) {
+            return null;
+        }
+        if (ids.size() > MAX_ID_FILTER_SIZE) {
+            return BookSpecifications.search(keyword, categoryId, status);
+        }
+        return BookSpecifications.idIn(ids)
+                .and(BookSpecifications.inCategory(categoryId))
+                .and(BookSpecifications.withStatus(status));
+    }
+
+    // 按给定ID顺序批量加载图书
+    private List<Book> findAllByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            byId.put(book.getId(), book);
+        }
+        List<Book> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
         return books;
     }
 
@@ -111,37 +373,116 @@ public class BookService {
         return bookRepository.findByAvailableCopiesGreaterThan(0);
     }
 
+    // 获取可借阅图书的下拉选项（只查询ID、书名、作者和可借数量）
+    public List<BookOption> getAvailableBookOptions() {
+        return bookRepository.findOptionsByAvailableCopiesGreaterThanOrderByTitle(0);
+    }
+
     // 根据分类获取图书
     public List<Book> getBooksByCategory(Long categoryId) {
         return bookRepository.findByCategoryId(categoryId);
     }
 
-    // 减少可借阅数量
+    // 减少可借阅数量：单条条件更新语句完成检查和扣减，并发借阅时不会超借；
+    // 启用库存账本时在内存中扣减，由账本异步写回数据库。
+    // 不回读数量：通常一条语句完成，只有扣减最后一本时执行第二条，由它的受影响行数得知图书已借完
     @Transactional
     public boolean reduceAvailableCopies(Long bookId) {
-        return bookRepository.findById(bookId).map(book -> {
-            if (book.getAvailableCopies() > 0) {
-                book.setAvailableCopies(book.getAvailableCopies() - 1);
-                bookRepository.save(book);
-                return true;
-            }
-            return false;
-        }).orElse(false);
+        if (inventoryLedger.isActive()) {
+            return inventoryLedger.reserve(bookId);
+        }
+        if (bookRepository.decrementAvailableCopies(bookId) == 1) {
+            return true;
+        }
+        if (bookRepository.decrementLastAvailableCopy(bookId) == 1) {
+            dashboardCounters.availableBooksChanged(-1);
+            return true;
+        }
+        return false;
     }
 
-    // 增加可借阅数量
+    // 增加可借阅数量：不超过总册数，已借完的图书归还时由第二条语句得知恢复可借
     @Transactional
     public boolean increaseAvailableCopies(Long bookId) {
-        return bookRepository.findById(bookId).map(book -> {
-            if (book.getAvailableCopies() < book.getTotalCopies()) {
-                book.setAvailableCopies(book.getAvailableCopies() + 1);
-                bookRepository.save(book);
-                return true;
+        if (inventoryLedger.isActive()) {
+            return inventoryLedger.release(bookId);
+        }
+        if (bookRepository.incrementAvailableCopies(bookId) == 1) {
+            return true;
+        }
+        if (bookRepository.incrementSoldOutCopies(bookId) == 1) {
+            dashboardCounters.availableBooksChanged(1);
+            return true;
+        }
+        return false;
+    }
+
+    // 批量减少可借阅数量（批量借阅），返回扣减成功的图书ID
+    @Transactional
+    public Set<Long> reduceAvailableCopies(List<Long> bookIds) {
+        Set<Long> reduced = new HashSet<>();
+        if (inventoryLedger.isActive()) {
+            for (Long bookId : bookIds) {
+                if (inventoryLedger.reserve(bookId)) {
+                    reduced.add(bookId);
+                }
             }
-            return false;
-        }).orElse(false);
+            return reduced;
+        }
+        int[] counts = bookRepository.batchDecrementAvailableCopies(bookIds);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                reduced.add(bookIds.get(i));
+            }
+        }
+        if (!reduced.isEmpty()) {
+            int soldOut = 0;
+            for (Object[] row : bookRepository.findAvailableCopiesByIdIn(reduced)) {
+                if (Integer.valueOf(0).equals(row[1])) {
+                    soldOut++;
+                }
+            }
+            dashboardCounters.availableBooksChanged(-soldOut);
+        }
+        return reduced;
     }
-    
+
+    // 批量增加可借阅数量（批量归还）
+    @Transactional
+    public void increaseAvailableCopies(List<Long> bookIds) {
+        if (inventoryLedger.isActive()) {
+            bookIds.forEach(inventoryLedger::release);
+            return;
+        }
+        int[] counts = bookRepository.batchIncrementAvailableCopies(bookIds);
+        // 同一本书可能归还多本：增加后的数量等于本批增加的数量，说明此前已借完
+        Map<Long, Integer> increased = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) {
+                increased.merge(bookIds.get(i), 1, Integer::sum);
+            }
+        }
+        if (increased.isEmpty()) {
+            return;
+        }
+        int restored = 0;
+        for (Object[] row : bookRepository.findAvailableCopiesByIdIn(increased.keySet())) {
+            if (increased.get((Long) row[0]).equals(row[1])) {
+                restored++;
+            }
+        }
+        dashboardCounters.availableBooksChanged(restored);
+    }
+
+    // 按ID批量获取图书
+    public Map<Long, Book> getBooksByIds(Collection<Long> ids) {
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            books.put(book.getId(), book);
+        }
+        return books;
+    }
+
     // 获取图书总数
     public long getTotalBookCount() {
         return bookRepository.count();
@@ -149,6 +490,11 @@ public class BookService {
     
     // 获取可借阅图书总数
     public long getAvailableBookCount() {
-        return bookRepository.findByAvailableCopiesGreaterThan(0).size();
+        return bookRepository.countByAvailableCopiesGreaterThan(0);
+    }
+
+    // 有可借副本时计为一本可借图书
+    private static int countIfAvailable(Book book) {
+        return book.getAvailableCopies() != null && book.getAvailableCopies() > 0 ? 1 : 0;
     }
 }
\ No newline at end of file
@@ -1,20 +1,43 @@
 package com.Southern.book.service;
 
+import com.Southern.book.dto.BatchItemResult;
+import com.Southern.book.dto.BatchResult;
+import com.Southern.book.dto.OverdueSummary;
+import com.Southern.book.dto.UserBorrowStats;
+import com.Southern.book.entity.Book;
 import com.Southern.book.entity.BorrowRecord;
 import com.Southern.book.entity.User;
-import com.Southern.book.entity.Book;
 import com.Southern.book.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BorrowService {
+    private static final Logger log = LoggerFactory.getLogger(BorrowService.class);
+
     @Autowired
     private BorrowRecordRepository borrowRecordRepository;
     
@@ -24,49 +47,71 @@ public class BorrowService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ActiveLoanCache activeLoanCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OverdueTracker overdueTracker;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    // 借阅记录搜索是否使用 n-gram 全文索引（仅 MySQL，需先按 book.sql 建立全文索引）
+    @Value("${book.borrow-search.fulltext:false}")
+    private boolean fulltextSearch;
+
+    // 每位用户同时借阅的图书上限
+    public static final int MAX_ACTIVE_BORROWS = 5;
+
     // 借阅图书
+    // 名额和库存都用“检查并修改”合一的条件更新语句扣减，并发请求不会超借；
+    // 任一步失败抛出异常，事务回滚已扣减的名额或库存
     @Transactional
     public BorrowRecord borrowBook(Long userId, Long bookId, int days) {
-        // 检查用户和图书是否存在
-        Optional<User> userOpt = userService.getUserById(userId);
-        Optional<Book> bookOpt = bookService.getBookById(bookId);
-        
-        if (!userOpt.isPresent() || !bookOpt.isPresent()) {
-            throw new IllegalArgumentException("用户或图书不存在");
-        }
-        
-        User user = userOpt.get();
-        Book book = bookOpt.get();
-        
-        // 检查用户是否已借阅该书
-        BorrowRecord activeBorrow = borrowRecordRepository.findActiveBorrowByUserAndBook(userId, bookId);
-        if (activeBorrow != null) {
+        // 检查用户是否已借阅该书、是否已达上限（在借图书缓存中判断并占位）
+        ActiveLoanCache.Result reserved = activeLoanCache.tryReserve(userId, bookId, MAX_ACTIVE_BORROWS);
+        if (reserved == ActiveLoanCache.Result.ALREADY_BORROWED) {
             throw new IllegalStateException("用户已借阅该书");
         }
-        
-        // 检查用户当前借阅数量是否超过限制（最多5本）
-        int currentBorrowCount = borrowRecordRepository.countActiveBorrowsByUser(userId);
-        if (currentBorrowCount >= 5) {
-            throw new IllegalStateException("用户当前借阅图书数量已达上限（5本）");
+        if (reserved == ActiveLoanCache.Result.LIMIT_REACHED) {
+            throw new IllegalStateException("用户当前借阅图书数量已达上限（" + MAX_ACTIVE_BORROWS + "本）");
         }
         
-        // 检查可借阅数量
-        if (book.getAvailableCopies() <= 0) {
-            throw new IllegalStateException("该书已无可用副本");
+        // 占用借阅名额（最多5本），数据库中的计数是最终依据
+        if (!userService.acquireBorrowSlot(userId, MAX_ACTIVE_BORROWS)) {
+            if (!userService.getUserById(userId).isPresent()) {
+                throw new IllegalArgumentException("用户或图书不存在");
+            }
+            throw new IllegalStateException("用户当前借阅图书数量已达上限（" + MAX_ACTIVE_BORROWS + "本）");
         }
         
         // 减少图书可借阅数量
-        bookService.reduceAvailableCopies(bookId);
+        if (!bookService.reduceAvailableCopies(bookId)) {
+            if (!bookService.getBookById(bookId).isPresent()) {
+                throw new IllegalArgumentException("用户或图书不存在");
+            }
+            throw new IllegalStateException("该书已无可用副本");
+        }
         
-        // 创建借阅记录
+        // 创建借阅记录：用户名、书名副本由插入语句从 users、books 中取出，不再加载用户和图书
         LocalDate borrowDate = LocalDate.now();
         LocalDate dueDate = borrowDate.plusDays(days);
-        BorrowRecord borrowRecord = new BorrowRecord(user, book, borrowDate, dueDate);
+        Long recordId = borrowRecordRepository.insertBorrowRecord(userId, bookId, borrowDate, dueDate);
+        if (recordId == null) {
+            throw new IllegalArgumentException("用户或图书不存在");
+        }
         
-        return borrowRecordRepository.save(borrowRecord);
+        overdueTracker.track(recordId, dueDate);
+        dashboardCounters.activeBorrowsChanged(1);
+        // 返回按需加载的引用，调用方不访问时不产生查询
+        return borrowRecordRepository.getReferenceById(recordId);
     }
 
     // 归还图书
+    // 借阅记录用条件更新标记为已归还，同一记录并发归还时只有一次成功，库存和名额不会重复返还
     @Transactional
     public Optional<BorrowRecord> returnBook(Long recordId) {
         return borrowRecordRepository.findById(recordId).map(record -> {
@@ -76,26 +121,201 @@ public class BorrowService {
             
             // 计算罚款
             LocalDate returnDate = LocalDate.now();
-            if (returnDate.isAfter(record.getDueDate())) {
-                long overdueDays = ChronoUnit.DAYS.between(record.getDueDate(), returnDate);
-                double finePerDay = 0.5; // 每天罚款0.5元
-                record.setFineAmount(overdueDays * finePerDay);
-            }
+            Double fineAmount = calculateFine(record, returnDate);
             
-            // 更新借阅记录
+            // 更新借阅记录（更新语句会清空持久化上下文，先取出关联ID）
+            Long userId = record.getUser().getId();
+            Long bookId = record.getBook().getId();
+            if (borrowRecordRepository.markReturned(recordId, returnDate, fineAmount) == 0) {
+                throw new IllegalStateException("该书已归还");
+            }
             record.setReturnDate(returnDate);
+            record.setFineAmount(fineAmount);
             record.setStatus("RETURNED");
             
-            // 增加图书可借阅数量 - 确保图书数量正确更新
-            Book book = record.getBook();
-            int newAvailableCopies = book.getAvailableCopies() + 1;
-            book.setAvailableCopies(newAvailableCopies);
-            bookService.updateBook(book.getId(), book);
+            // 增加图书可借阅数量，释放借阅名额
+            bookService.increaseAvailableCopies(bookId);
+            userService.releaseBorrowSlot(userId);
+            activeLoanCache.release(userId, bookId);
+            overdueTracker.untrack(recordId);
+            dashboardCounters.activeBorrowsChanged(-1);
             
-            return borrowRecordRepository.save(record);
+            return record;
         });
     }
 
+    // 批量借阅：同一用户一次借多本，整单在一个事务中完成。
+    // 图书存在性一次查询校验，名额一条语句占用，库存扣减和借阅记录插入都走JDBC批处理；
+    // 是否还有可借副本只由库存扣减判断（启用库存账本时数据库中的可借数量可能尚未写回）；
+    // allOrNothing 为 true 时任一本失败则回滚整单，否则成功的单项照常借出
+    @Transactional
+    public BatchResult borrowBooks(Long userId, List<Long> bookIds, int days, boolean allOrNothing) {
+        if (!userService.getUserById(userId).isPresent()) {
+            throw new IllegalArgumentException("用户不存在");
+        }
+        Map<Long, Book> books = bookService.getBooksByIds(bookIds);
+        List<BatchItemResult> items = new ArrayList<>();
+        Map<Long, BatchItemResult> candidates = new LinkedHashMap<>();
+        for (Long bookId : bookIds) {
+            BatchItemResult item = new BatchItemResult(bookId, null);
+            items.add(item);
+            Book book = books.get(bookId);
+            if (candidates.containsKey(bookId)) {
+                item.fail("重复的图书");
+            } else if (book == null) {
+                item.fail("图书不存在");
+            } else {
+                ActiveLoanCache.Result reserved = activeLoanCache.tryReserve(userId, bookId, MAX_ACTIVE_BORROWS);
+                if (reserved == ActiveLoanCache.Result.ALREADY_BORROWED) {
+                    item.fail("用户已借阅该书");
+                } else if (reserved == ActiveLoanCache.Result.LIMIT_REACHED) {
+                    item.fail("用户当前借阅图书数量已达上限（" + MAX_ACTIVE_BORROWS + "本）");
+                } else {
+                    candidates.put(bookId, item);
+                }
+            }
+        }
+        if (candidates.isEmpty() || (allOrNothing && candidates.size() < items.size())) {
+            return rollbackBatch(items);
+        }
+        
+        // 一次占用全部名额
+        if (!userService.acquireBorrowSlots(userId, candidates.size(), MAX_ACTIVE_BORROWS)) {
+            for (Map.Entry<Long, BatchItemResult> entry : candidates.entrySet()) {
+                activeLoanCache.cancel(userId, entry.getKey());
+                entry.getValue().fail("用户当前借阅图书数量已达上限（" + MAX_ACTIVE_BORROWS + "本）");
+            }
+            return rollbackBatch(items);
+        }
+        
+        // 批量扣减库存，扣减失败的单项退回名额
+        Set<Long> reduced = bookService.reduceAvailableCopies(new ArrayList<>(candidates.keySet()));
+        if (reduced.size() < candidates.size()) {
+            if (allOrNothing) {
+                candidates.forEach((bookId, item) -> {
+                    if (!reduced.contains(bookId)) {
+                        item.fail("该书已无可用副本");
+                    }
+                });
+                return rollbackBatch(items);
+            }
+            int failed = 0;
+            Iterator<Map.Entry<Long, BatchItemResult>> it = candidates.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, BatchItemResult> entry = it.next();
+                if (!reduced.contains(entry.getKey())) {
+                    activeLoanCache.cancel(userId, entry.getKey());
+                    entry.getValue().fail("该书已无可用副本");
+                    it.remove();
+                    failed++;
+                }
+            }
+            userService.releaseBorrowSlots(userId, failed);
+            if (candidates.isEmpty()) {
+                return new BatchResult(items);
+            }
+        }
+        
+        // 批量插入借阅记录，再一次查询取回记录ID
+        LocalDate borrowDate = LocalDate.now();
+        LocalDate dueDate = borrowDate.plusDays(days);
+        borrowRecordRepository.batchInsertBorrowRecords(userId, new ArrayList<>(candidates.keySet()),
+                borrowDate, dueDate);
+        for (Object[] row : borrowRecordRepository.findActiveRecordIdsByUserAndBooks(userId, candidates.keySet())) {
+            BatchItemResult item = candidates.get((Long) row[0]);
+            if (item != null) {
+                item.succeed((Long) row[1]);
+                overdueTracker.track((Long) row[1], dueDate);
+            }
+        }
+        dashboardCounters.activeBorrowsChanged(candidates.size());
+        return new BatchResult(items);
+    }
+
+    // 批量归还：借阅记录一次查询，状态更新和库存返还都走JDBC批处理，名额按用户合并释放
+    @Transactional
+    public BatchResult returnBooks(List<Long> recordIds, boolean allOrNothing) {
+        Map<Long, BorrowRecord> records = new HashMap<>();
+        for (BorrowRecord record : borrowRecordRepository.findAllById(recordIds)) {
+            records.put(record.getId(), record);
+        }
+        LocalDate returnDate = LocalDate.now();
+        List<BatchItemResult> items = new ArrayList<>();
+        Map<Long, BatchItemResult> candidates = new LinkedHashMap<>();
+        for (Long recordId : recordIds) {
+            BorrowRecord record = records.get(recordId);
+            BatchItemResult item = new BatchItemResult(record == null ? null : record.getBook().getId(), recordId);
+            items.add(item);
+            if (candidates.containsKey(recordId)) {
+                item.fail("重复的借阅记录");
+            } else if (record == null) {
+                item.fail("借阅记录不存在");
+            } else if ("RETURNED".equals(record.getStatus())) {
+                item.fail("该书已归还");
+            } else {
+                item.setFineAmount(calculateFine(record, returnDate));
+                candidates.put(recordId, item);
+            }
+        }
+        if (candidates.isEmpty() || (allOrNothing && candidates.size() < items.size())) {
+            return rollbackBatch(items);
+        }
+        
+        List<Long> ids = new ArrayList<>(candidates.keySet());
+        List<Double> fines = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            fines.add(candidates.get(id).getFineAmount());
+        }
+        int[] counts = borrowRecordRepository.batchMarkReturned(ids, fines, returnDate);
+        List<Long> returnedBookIds = new ArrayList<>();
+        Map<Long, Integer> releasedByUser = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            BatchItemResult item = candidates.get(ids.get(i));
+            if (counts[i] != 1) {
+                // 并发归还，已被其他请求处理
+                item.fail("该书已归还");
+                continue;
+            }
+            item.succeed(ids.get(i));
+            BorrowRecord record = records.get(ids.get(i));
+            Long userId = record.getUser().getId();
+            returnedBookIds.add(item.getBookId());
+            releasedByUser.merge(userId, 1, Integer::sum);
+            activeLoanCache.release(userId, item.getBookId());
+            overdueTracker.untrack(ids.get(i));
+        }
+        if (allOrNothing && returnedBookIds.size() < items.size()) {
+            return rollbackBatch(items);
+        }
+        
+        if (!returnedBookIds.isEmpty()) {
+            bookService.increaseAvailableCopies(returnedBookIds);
+        }
+        releasedByUser.forEach(userService::releaseBorrowSlots);
+        dashboardCounters.activeBorrowsChanged(-returnedBookIds.size());
+        return new BatchResult(items);
+    }
+
+    // 整单失败：回滚当前事务，尚未失败的单项标记为未执行
+    private static BatchResult rollbackBatch(List<BatchItemResult> items) {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        for (BatchItemResult item : items) {
+            if (item.getMessage() == null) {
+                item.fail("整单未执行");
+            }
+        }
+        return new BatchResult(items);
+    }
+
+    // 逾期罚款：每天0.5元，未逾期时沿用记录中的金额
+    private static Double calculateFine(BorrowRecord record, LocalDate returnDate) {
+        if (returnDate.isAfter(record.getDueDate())) {
+            long overdueDays = ChronoUnit.DAYS.between(record.getDueDate(), returnDate);
+            return overdueDays * 0.5;
+        }
+        return record.getFineAmount();
+    }
+
     // 获取所有借阅记录
     public List<BorrowRecord> getAllBorrowRecords() {
         return borrowRecordRepository.findAll();
@@ -119,31 +339,79 @@ public class BorrowService {
         return List.of();
     }
 
+    // 个人借阅统计：当前借阅、逾期未还、历史借阅数量和已归还记录的借阅总天数
+    public UserBorrowStats getUserBorrowStats(Long userId) {
+        long current = 0, overdue = 0, history = 0, days = 0;
+        for (Object[] row : borrowRecordRepository.summarizeByUser(userId, LocalDate.now())) {
+            long count = ((Number) row[1]).longValue();
+            if ("RETURNED".equals(row[0])) {
+                history += count;
+                days += row[3] == null ? 0 : ((Number) row[3]).longValue();
+            } else {
+                current += count;
+                overdue += row[2] == null ? 0 : ((Number) row[2]).longValue();
+            }
+        }
+        return new UserBorrowStats(current, overdue, history, days);
+    }
+
+    // 个人借阅记录分页，total 为统计查询得出的记录总数
+    public Page<BorrowRecord> getBorrowRecordsByUser(Long userId, Pageable pageable, long total) {
+        return new PageImpl<>(borrowRecordRepository.findPageByUser(userId, pageable), pageable, total);
+    }
+
     // 获取逾期记录
     public List<BorrowRecord> getOverdueRecords() {
         return borrowRecordRepository.findByDueDateBeforeAndStatusNot(LocalDate.now(), "RETURNED");
     }
 
-    // 获取逾期记录数量
+    // 逾期记录分页，total 为逾期统计查询得出的记录总数
+    public Page<BorrowRecord> getOverdueRecords(Pageable pageable, long total) {
+        return new PageImpl<>(borrowRecordRepository.findOverdue(LocalDate.now(), pageable), pageable, total);
+    }
+
+    // 逾期统计（一条聚合查询）
+    public OverdueSummary getOverdueSummary() {
+        LocalDate today = LocalDate.now();
+        Object[] row = borrowRecordRepository.summarizeOverdue(today).get(0);
+        return new OverdueSummary(toLong(row[0]), toLong(row[1]), row[2] == null ? null : ((Number) row[2]).doubleValue(),
+                (LocalDate) row[3], toLong(row[4]), today);
+    }
+
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    // 获取逾期记录数量：逾期检测加载完成后直接读取内存中的计数
     public int getOverdueCount() {
-        return getOverdueRecords().size();
+        if (overdueTracker.isReady()) {
+            return overdueTracker.getOverdueCount();
+        }
+        return (int) borrowRecordRepository.countByDueDateBeforeAndStatusNot(LocalDate.now(), "RETURNED");
     }
 
     // 获取活跃借阅记录数量（未归还的借阅记录）
     public int getActiveBorrowCount() {
-        List<BorrowRecord> activeRecords = borrowRecordRepository.findByStatusNot("RETURNED");
-        return activeRecords.size();
+        return (int) borrowRecordRepository.countByStatusNot("RETURNED");
     }
 
-    // 更新逾期状态
-    @Transactional
-    public void updateOverdueStatus() {
-        List<BorrowRecord> overdueRecords = getOverdueRecords();
-        for (BorrowRecord record : overdueRecords) {
-            if (!"OVERDUE".equals(record.getStatus())) {
-                record.setStatus("OVERDUE");
-                borrowRecordRepository.save(record);
+    // 更新逾期状态：按ID分批，每批一条查询取ID、一条批量更新语句，各批独立提交，避免长时间持有行锁。
+    // 返回更新的记录数
+    public int updateOverdueStatus(int chunkSize) {
+        LocalDate today = LocalDate.now();
+        long afterId = 0L;
+        int updated = 0;
+        while (true) {
+            List<Long> ids = borrowRecordRepository.findOverdueCandidateIds(afterId, today, PageRequest.ofSize(chunkSize));
+            if (ids.isEmpty()) {
+                return updated;
+            }
+            Integer count = transactionTemplate.execute(status -> borrowRecordRepository.markOverdue(ids, today));
+            updated += count == null ? 0 : count;
+            if (ids.size() < chunkSize) {
+                return updated;
             }
+            afterId = ids.get(ids.size() - 1);
         }
     }
     
@@ -152,8 +420,40 @@ public class BorrowService {
         return borrowRecordRepository.findById(id);
     }
     
-    // 搜索借阅记录
-    public List<BorrowRecord> searchBorrowRecords(String username, String bookTitle, String status) {
-        return borrowRecordRepository.searchBorrowRecords(username, bookTitle, status);
+    // 搜索借阅记录（分页），空字符串条件视为不筛选；用户名、书名按本表中的小写副本匹配。
+    // 启用全文检索时先用 n-gram 全文索引查出当前页的ID，再按ID加载记录
+    public Page<BorrowRecord> searchBorrowRecords(String username, String bookTitle, String status, Pageable pageable) {
+        String usernameKey = BorrowRecord.searchKey(blankToNull(username));
+        String bookTitleKey = BorrowRecord.searchKey(blankToNull(bookTitle));
+        if (!fulltextSearch || (usernameKey == null && bookTitleKey == null)) {
+            return borrowRecordRepository.searchBorrowRecords(usernameKey, bookTitleKey, blankToNull(status), pageable);
+        }
+        Page<Long> ids = borrowRecordRepository.searchIdsByFulltext(usernameKey, bookTitleKey, blankToNull(status), pageable);
+        Map<Long, BorrowRecord> byId = new HashMap<>();
+        for (BorrowRecord record : borrowRecordRepository.findWithUserAndBookByIdIn(ids.getContent())) {
+            byId.put(record.getId(), record);
+        }
+        List<BorrowRecord> records = new ArrayList<>(ids.getNumberOfElements());
+        for (Long id : ids.getContent()) {
+            BorrowRecord record = byId.get(id);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return new PageImpl<>(records, pageable, ids.getTotalElements());
+    }
+
+    // 启动时补齐历史记录的用户名、书名副本
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillSearchColumns() {
+        int updated = borrowRecordRepository.backfillSearchColumns();
+        if (updated > 0) {
+            log.info("已为 {} 条借阅记录补齐搜索列", updated);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
     }
 }
\ No newline at end of file
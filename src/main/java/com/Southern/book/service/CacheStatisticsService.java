@@ -0,0 +1,45 @@
+package com.Southern.book.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class CacheStatisticsService {
+    // 需要统计的二级缓存区域，与实体上 @Cache 的 region 以及 application.conf 中的配置一致
+    private static final List<String> REGIONS = List.of(
+            "categories", "roles", "role-permissions", "permissions", "default-query-results-region");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // 获取各缓存区域的命中、未命中、写入次数
+    public Map<String, Map<String, Long>> getRegionStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("hits", regionStats.getHitCount());
+            values.put("misses", regionStats.getMissCount());
+            values.put("puts", regionStats.getPutCount());
+            result.put(region, values);
+        }
+        Map<String, Long> queryCache = new LinkedHashMap<>();
+        queryCache.put("hits", statistics.getQueryCacheHitCount());
+        queryCache.put("misses", statistics.getQueryCacheMissCount());
+        queryCache.put("puts", statistics.getQueryCachePutCount());
+        result.put("query-cache", queryCache);
+        return result;
+    }
+}
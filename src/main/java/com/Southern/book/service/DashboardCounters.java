@@ -0,0 +1,151 @@
+package com.Southern.book.service;
+
+import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// 仪表盘计数：图书总数、可借图书数、用户总数、未归还借阅数保存在 LongAdder 中，
+// 增删图书和用户、借阅和归还时增量更新（事务提交后生效），仪表盘直接读取，不再查询整张表。
+// 启动时和定时任务用 COUNT 查询校准；逾期数量由 OverdueTracker 维护
+@Service
+public class DashboardCounters {
+    private static final Logger log = LoggerFactory.getLogger(DashboardCounters.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    // 库存账本依赖本类汇报可借状态变化，这里延迟获取以免循环依赖
+    @Autowired
+    private ObjectProvider<InventoryLedger> inventoryLedger;
+
+    private final Counter totalBooks = new Counter("图书总数");
+    private final Counter availableBooks = new Counter("可借图书数");
+    private final Counter totalUsers = new Counter("用户总数");
+    private final Counter activeBorrows = new Counter("未归还借阅数");
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getTotalBooks() { return totalBooks.value.sum(); }
+    public long getAvailableBooks() { return availableBooks.value.sum(); }
+    public long getTotalUsers() { return totalUsers.value.sum(); }
+    public long getActiveBorrows() { return activeBorrows.value.sum(); }
+
+    // 新增或删除图书，在事务中调用时等事务提交后再生效
+    public void booksChanged(int totalDelta, int availableDelta) {
+        afterCommit(() -> {
+            totalBooks.add(totalDelta);
+            availableBooks.add(availableDelta);
+        });
+    }
+
+    // 图书由无可借副本变为可借（+1）或借完（-1），在事务中调用时等事务提交后再生效
+    public void availableBooksChanged(int delta) {
+        afterCommit(() -> availableBooks.add(delta));
+    }
+
+    // 立即生效，供内存库存账本在预留和归还时调用（账本自身处理事务回滚）
+    public void adjustAvailableBooks(int delta) {
+        availableBooks.add(delta);
+    }
+
+    public void usersChanged(int delta) {
+        afterCommit(() -> totalUsers.add(delta));
+    }
+
+    public void activeBorrowsChanged(int delta) {
+        afterCommit(() -> activeBorrows.add(delta));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+        ready = true;
+    }
+
+    // 定时按 COUNT 查询校准；查询期间计数有变化的项留到下一轮
+    @Scheduled(initialDelayString = "${book.dashboard.reconcile-interval-ms:300000}",
+            fixedDelayString = "${book.dashboard.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            totalBooks.reconcile(bookRepository::count);
+            availableBooks.reconcile(() -> {
+                // 库存账本的增量先写回，数据库中的可借数量才与内存一致
+                InventoryLedger ledger = inventoryLedger.getIfAvailable();
+                if (ledger != null) {
+                    ledger.flush();
+                }
+                return bookRepository.countByAvailableCopiesGreaterThan(0);
+            });
+            totalUsers.reconcile(userRepository::count);
+            activeBorrows.reconcile(() -> borrowRecordRepository.countByStatusNot("RETURNED"));
+        } catch (RuntimeException e) {
+            log.warn("仪表盘计数校准失败: {}", e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // 单项计数：changes 记录修改次数，校准查询前后不变才用查询结果覆盖
+    private static class Counter {
+        final String name;
+        final LongAdder value = new LongAdder();
+        final LongAdder changes = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        void add(long delta) {
+            if (delta != 0) {
+                value.add(delta);
+                changes.increment();
+            }
+        }
+
+        void reconcile(LongSupplier query) {
+            long before = changes.sum();
+            long actual = query.getAsLong();
+            long drift = actual - value.sum();
+            if (drift != 0 && changes.sum() == before) {
+                value.add(drift);
+                if (before > 0) {
+                    log.warn("仪表盘计数校准：{} 修正 {}", name, drift);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.Southern.book.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 仪表盘计数推送：所有已连接的管理员共用一个定时发布任务，计数取自内存（DashboardCounters、OverdueTracker），
+// 连接时先发送完整计数（snapshot），之后每个周期最多推送一条变化量（delta），没有变化时不推送。
+// 定时任务只计算要推送的事件，写连接由专用线程池完成，每个连接按顺序发送；
+// 单次发送超时的连接被移除，慢客户端不会阻塞调度线程和其他连接
+@Service
+public class DashboardPublisher {
+    private static final Logger log = LoggerFactory.getLogger(DashboardPublisher.class);
+
+    // 长时间没有变化时发送心跳注释，及时清理已断开的连接
+    private static final long HEARTBEAT_INTERVAL_MS = 30000;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor sendExecutor;
+    private final long sendTimeoutMs;
+
+    // 最近一次发布的计数，新连接以它为起点，之后的变化量都相对于它；由本对象的监视器保护，持有期间不做网络写入
+    private Map<String, Long> published;
+    private long lastSentAt;
+
+    public DashboardPublisher(@Value("${book.dashboard.push-threads:2}") int threads,
+                              @Value("${book.dashboard.send-timeout-ms:5000}") long sendTimeoutMs) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dashboard-push-");
+        threadFactory.setDaemon(true);
+        this.sendExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.sendExecutor.allowCoreThreadTimeOut(true);
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    // 新的订阅：不设超时，连接断开后在发送失败时移除
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        synchronized (this) {
+            if (published == null && dashboardCounters.isReady()) {
+                published = snapshot();
+            }
+            // 计数尚未加载完成时先不发送，加载完成后由发布任务统一发送完整计数
+            if (published != null) {
+                subscriber.enqueue(SseEmitter.event().name("snapshot").data(toJson(published)).build());
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // 按间隔合并这段时间内的所有变化，只发布一次
+    @Scheduled(fixedDelayString = "${book.dashboard.push-interval-ms:1000}")
+    public void publish() {
+        dropStalledSubscribers();
+        synchronized (this) {
+            if (subscribers.isEmpty()) {
+                // 无人订阅时不维护基准，下次订阅重新取完整计数
+                published = null;
+                return;
+            }
+            if (!dashboardCounters.isReady()) {
+                return;
+            }
+            Map<String, Long> current = snapshot();
+            if (published == null) {
+                published = current;
+                broadcast(SseEmitter.event().name("snapshot").data(toJson(current)));
+                lastSentAt = System.currentTimeMillis();
+                return;
+            }
+            Map<String, Long> delta = new LinkedHashMap<>();
+            current.forEach((name, value) -> {
+                long change = value - published.getOrDefault(name, 0L);
+                if (change != 0) {
+                    delta.put(name, change);
+                }
+            });
+            long now = System.currentTimeMillis();
+            if (!delta.isEmpty()) {
+                published = current;
+                broadcast(SseEmitter.event().name("delta").data(toJson(delta)));
+                lastSentAt = now;
+            } else if (now - lastSentAt >= HEARTBEAT_INTERVAL_MS) {
+                broadcast(SseEmitter.event().comment("heartbeat"));
+                lastSentAt = now;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    // 事件只构建一次，各连接共用同一份数据
+    private void broadcast(SseEmitter.SseEventBuilder event) {
+        Set<ResponseBodyEmitter.DataWithMediaType> data = event.build();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(data);
+        }
+    }
+
+    // 移除单次发送超过超时时间的连接；正在阻塞的写入由发送线程在返回后结束连接
+    private void dropStalledSubscribers() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > sendTimeoutMs) {
+                subscriber.closed = true;
+                subscribers.remove(subscriber);
+                log.debug("仪表盘推送发送超时，移除连接");
+            }
+        }
+    }
+
+    // 单个连接的发送队列：同一时刻最多一个发送线程处理，事件按入队顺序发送
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // 当前发送开始的时间，空闲时为 0
+        private volatile long sendingSince;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Set<ResponseBodyEmitter.DataWithMediaType> data) {
+            if (closed) {
+                return;
+            }
+            queue.add(data);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    queue.clear();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> data;
+                while (!closed && (data = queue.poll()) != null) {
+                    sendingSince = System.currentTimeMillis();
+                    emitter.send(data);
+                    sendingSince = 0;
+                }
+                if (closed) {
+                    queue.clear();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                queue.clear();
+                subscribers.remove(this);
+                log.debug("仪表盘推送连接已断开: {}", e.getMessage());
+            } finally {
+                sendingSince = 0;
+                draining.set(false);
+            }
+            // 释放标记前新入队的事件由这里补发
+            schedule();
+        }
+    }
+
+    private Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("totalBooks", dashboardCounters.getTotalBooks());
+        values.put("availableBooks", dashboardCounters.getAvailableBooks());
+        values.put("totalUsers", dashboardCounters.getTotalUsers());
+        values.put("activeBorrows", dashboardCounters.getActiveBorrows());
+        values.put("overdueRecords", (long) borrowService.getOverdueCount());
+        return values;
+    }
+
+    private String toJson(Map<String, Long> values) {
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
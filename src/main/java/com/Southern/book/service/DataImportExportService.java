@@ -1,11 +1,22 @@
 package com.Southern.book.service;
 
+import com.Southern.book.dto.ImportResult;
 import com.Southern.book.entity.Book;
-import com.Southern.book.entity.User;
+import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.repository.UserRepository;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
@@ -13,10 +24,30 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 public class DataImportExportService {
+    private static final Logger log = LoggerFactory.getLogger(DataImportExportService.class);
     
     @Autowired
     private BookService bookService;
@@ -24,58 +55,200 @@ public class DataImportExportService {
     @Autowired
     private UserService userService;
     
-    // 公共方法，用于获取所有图书
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
-    }
+    @Autowired
+    private BookRepository bookRepository;
     
-    // 公共方法，用于获取所有用户
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
-    }
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // 导入时每批写入的行数
+    @Value("${book.import.chunk-size:1000}")
+    private int importChunkSize;
+
+    // 导入时的解析线程数，0 表示与CPU核数相同
+    @Value("${book.import.parse-threads:0}")
+    private int parseThreads;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    // 导出图书数据为CSV
-    public File exportBooksToCsv() {
-        try {
-            File tempFile = File.createTempFile("books_", ".csv");
-            try (CSVWriter writer = new CSVWriter(new FileWriter(tempFile))) {
-                // 写入表头
-                String[] header = {"ID", "ISBN", "Title", "Author", "Publisher", "PublishDate", "Price", "TotalCopies", "AvailableCopies"};
-                writer.writeNext(header);
-
-                // 写入数据
-                List<Book> books = bookService.getAllBooks();
-                for (Book book : books) {
-                    String[] data = {
-                        book.getId().toString(),
-                        book.getIsbn() != null ? book.getIsbn() : "",
-                        book.getTitle(),
-                        book.getAuthor() != null ? book.getAuthor() : "",
-                        book.getPublisher() != null ? book.getPublisher() : "",
-                        book.getPublishDate() != null ? book.getPublishDate().format(DATE_FORMATTER) : "",
-                        book.getPrice() != null ? book.getPrice().toString() : "0",
-                        book.getTotalCopies().toString(),
-                        book.getAvailableCopies().toString()
-                    };
-                    writer.writeNext(data);
+    // ISBN 被 Excel 存成小数时的格式，预编译后供各解析线程共用
+    private static final Pattern DECIMAL_PATTERN = Pattern.compile("^\\d*\\.?\\d+$");
+    private static final Pattern TRAILING_ZEROS_PATTERN = Pattern.compile("\\.?0+$");
+
+    // 导入流水线的结束标记
+    private static final Future<ParsedChunk> END_OF_IMPORT = CompletableFuture.completedFuture(null);
+
+    // 导出时每批转换、写出的行数，写完一批清空一次持久化上下文
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    private static final String[] BOOK_HEADER = {"ID", "ISBN", "Title", "Author", "Publisher", "PublishDate", "Price", "TotalCopies", "AvailableCopies"};
+    private static final String[] USER_HEADER = {"ID", "Username", "Email", "FullName", "Roles", "Enabled"};
+    private static final String[] BORROW_RECORD_HEADER = {"ID", "User", "Book", "BorrowDate", "DueDate", "ReturnDate", "Status", "FineAmount"};
+
+    // 导出图书为CSV，直接写入 out，返回导出的行数
+    @Transactional(readOnly = true)
+    public int exportBooksToCsv(Writer out) throws IOException {
+        return writeCsv(out, BOOK_HEADER, bookRepository.streamAllForExport(), eachRow(book -> new String[]{
+            book.getId().toString(),
+            book.getIsbn() != null ? book.getIsbn() : "",
+            book.getTitle(),
+            book.getAuthor() != null ? book.getAuthor() : "",
+            book.getPublisher() != null ? book.getPublisher() : "",
+            book.getPublishDate() != null ? book.getPublishDate().format(DATE_FORMATTER) : "",
+            book.getPrice() != null ? book.getPrice().toString() : "0",
+            String.valueOf(book.getTotalCopies()),
+            String.valueOf(book.getAvailableCopies())
+        }));
+    }
+
+    // 导出用户为CSV，includeInactive 为 false 时跳过已停用的用户；角色与用户在同一条查询中取出
+    @Transactional(readOnly = true)
+    public int exportUsersToCsv(Writer out, boolean includeInactive) throws IOException {
+        return writeCsv(out, USER_HEADER, mergeUserRoles(userRepository.streamForExport(includeInactive)), rows -> rows);
+    }
+
+    // 同一用户的多行（每个角色一行）合并为一行，角色名用逗号连接；查询按用户ID排序，同一用户的行相邻
+    private static Stream<String[]> mergeUserRoles(Stream<Object[]> rows) {
+        Iterator<Object[]> it = rows.iterator();
+        Iterator<String[]> merged = new Iterator<>() {
+            private Object[] next = it.hasNext() ? it.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String[] next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Object[] user = next;
+                List<String> roles = new ArrayList<>();
+                while (next != null && next[0].equals(user[0])) {
+                    if (next[5] != null) {
+                        roles.add((String) next[5]);
+                    }
+                    next = it.hasNext() ? it.next() : null;
+                }
+                return new String[]{
+                    user[0].toString(),
+                    (String) user[1],
+                    user[2] != null ? (String) user[2] : "",
+                    user[3] != null ? (String) user[3] : "",
+                    String.join(",", roles),
+                    String.valueOf(user[4])
+                };
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(rows::close);
+    }
+
+    // 导出借阅记录为CSV
+    @Transactional(readOnly = true)
+    public int exportBorrowRecordsToCsv(Writer out) throws IOException {
+        return writeCsv(out, BORROW_RECORD_HEADER, borrowRecordRepository.streamAllForExport(), eachRow(record -> new String[]{
+            record.getId().toString(),
+            record.getUser().getUsername(),
+            record.getBook().getTitle(),
+            formatDate(record.getBorrowDate()),
+            formatDate(record.getDueDate()),
+            formatDate(record.getReturnDate()),
+            record.getStatus(),
+            record.getFineAmount() != null ? record.getFineAmount().toString() : "0.0"
+        }));
+    }
+
+    // 边读边写：查询结果逐行从数据库流式取回，每凑满一批转换、写出后清空持久化上下文，
+    // 内存占用不随导出行数增长。out 由调用方关闭
+    private <T> int writeCsv(Writer out, String[] header, Stream<T> rows,
+                             Function<List<T>, List<String[]>> chunkMapper) throws IOException {
+        CSVWriter writer = new CSVWriter(out);
+        writer.writeNext(header);
+        int count = 0;
+        List<T> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        try (rows) {
+            Iterator<T> it = rows.iterator();
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !it.hasNext()) {
+                    writer.writeAll(chunkMapper.apply(chunk));
+                    count += chunk.size();
+                    chunk.clear();
+                    entityManager.clear();
                 }
             }
-            return tempFile;
-        } catch (IOException e) {
-            throw new RuntimeException("导出CSV失败", e);
         }
+        writer.flush();
+        return count;
+    }
+
+    private static <T> Function<List<T>, List<String[]>> eachRow(Function<T, String[]> mapper) {
+        return chunk -> chunk.stream().map(mapper).toList();
+    }
+
+    private static String formatDate(LocalDate date) {
+        return date != null ? date.format(DATE_FORMATTER) : "";
     }
 
-    // 从CSV导入图书数据
-    public int importBooksFromCsv(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new IllegalArgumentException("文件不能为空");
+    // 从CSV导入图书数据，分三级流水线执行：
+    // 读取线程解码CSV，按 chunk-size 分批交给解析线程池；解析线程并行解析、校验各批；
+    // 调用线程按读取顺序取出解析好的批次写库，每批一个事务、一次JDBC批量插入。
+    // 排队中的批次数有上限，写库跟不上时读取线程阻塞等待，内存占用不随文件大小增长；
+    // 解析与写库同时进行，不再交替等待。整批失败时逐行重试找出失败的行，不中断整个导入。
+    // upsert 为 true 时按ISBN有则更新、无则新增，否则只新增。文件中重复的ISBN只保留第一次出现的行。
+    // 进度实时记入 result，result 被取消时在下一批写入前停止；in 由调用方关闭
+    public ImportResult importBooksFromCsv(InputStream in, ImportResult result, boolean upsert) {
+        long start = System.currentTimeMillis();
+        int workers = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        // 按读取顺序排队的解析任务，容量即同时在途的批次数上限
+        BlockingQueue<Future<ParsedChunk>> pending = new ArrayBlockingQueue<>(workers * 2);
+        ExecutorService parsers = Executors.newFixedThreadPool(workers, importThreadFactory("book-import-parse-"));
+        ExecutorService readerThread = Executors.newSingleThreadExecutor(importThreadFactory("book-import-read-"));
+        try {
+            Future<?> reader = readerThread.submit(() -> {
+                readChunks(in, parsers, pending, result);
+                return null;
+            });
+            if (writeChunks(pending, result, upsert)) {
+                reader.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("图书导入被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof com.opencsv.exceptions.CsvValidationException) {
+                throw new RuntimeException("CSV格式验证失败", e.getCause());
+            }
+            throw new RuntimeException("读取CSV文件失败", e.getCause());
+        } finally {
+            // 取消或写库出错提前结束时，中断仍阻塞在队列上的读取线程和未完成的解析任务，并丢弃已排队的批次
+            readerThread.shutdownNow();
+            parsers.shutdownNow();
+            pending.clear();
         }
 
-        int importedCount = 0;
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
+        log.info("图书导入{}：{} 批，成功 {} 行，失败 {} 行，解析线程 {} 个，耗时 {} ms",
+                result.isCancelled() ? "已取消" : "完成", result.getChunks(),
+                result.getImported(), result.getFailed(), workers, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    // 读取阶段：逐行解码CSV，每凑满一批提交解析并按顺序放入队列，队列满时阻塞；结束时放入结束标记。
+    // 被中断说明写入阶段已提前结束（取消或写库出错），没有线程再取队列，此时不再放入结束标记，以免在已满的队列上永久阻塞
+    private void readChunks(InputStream in, ExecutorService parsers, BlockingQueue<Future<ParsedChunk>> pending,
+                            ImportResult result) throws Exception {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(in))) {
+            int chunk = 0;
+            List<String[]> rows = new ArrayList<>(importChunkSize);
+            List<Integer> lineNumbers = new ArrayList<>(importChunkSize);
             String[] line;
             boolean isFirstLine = true;
 
@@ -85,107 +258,197 @@ public class DataImportExportService {
                     isFirstLine = false;
                     continue;
                 }
-
-                // 创建图书对象，字段映射与模板格式匹配："书名", "作者", "出版社", "出版日期", "ISBN", "分类", "总册数", "可借册数", "价格", "描述"
-                Book book = new Book();
-                if (line.length > 0 && !line[0].isEmpty()) book.setTitle(line[0]); // 书名
-                if (line.length > 1 && !line[1].isEmpty()) book.setAuthor(line[1]); // 作者
-                if (line.length > 2 && !line[2].isEmpty()) book.setPublisher(line[2]); // 出版社
-                if (line.length > 3 && !line[3].isEmpty()) {
-                    try {
-                        book.setPublishDate(LocalDate.parse(line[3], DATE_FORMATTER)); // 出版日期
-                    } catch (Exception e) {
-                        // 日期格式错误，跳过
-                        System.err.println("日期格式错误: " + line[3]);
-                    }
-                }
-                // 确保ISBN作为字符串处理，避免科学计数法问题
-                if (line.length > 4 && !line[4].isEmpty()) {
-                    // 去除可能的前后空白并确保为字符串格式
-                    String isbn = line[4].trim();
-                    // 处理Excel可能自动转换的数字格式
-                    if (isbn.contains("E+")) {
-                        // 如果是科学计数法格式，尝试转换为普通数字字符串
-                        try {
-                            BigDecimal bd = new BigDecimal(isbn);
-                            isbn = bd.toPlainString();
-                        } catch (Exception e) {
-                            // 如果转换失败，使用原始值
-                        }
-                    } else if (isbn.matches("^\\d*\\.?\\d+$") && isbn.contains(".")) {
-                        // 如果是小数格式，去除末尾的0和小数点
-                        isbn = isbn.replaceAll("\\.?0+$", "");
-                    }
-                    book.setIsbn(isbn);
-                }
-                // 分类字段暂时不处理，需要额外的分类服务
-                if (line.length > 6 && !line[6].isEmpty()) {
-                    try {
-                        book.setTotalCopies(Integer.parseInt(line[6])); // 总册数
-                    } catch (Exception e) {
-                        book.setTotalCopies(1);
-                    }
-                }
-                if (line.length > 7 && !line[7].isEmpty()) {
-                    try {
-                        book.setAvailableCopies(Integer.parseInt(line[7])); // 可借册数
-                    } catch (Exception e) {
-                        book.setAvailableCopies(1);
-                    }
+                rows.add(line);
+                lineNumbers.add((int) reader.getLinesRead());
+                if (rows.size() == importChunkSize) {
+                    submitChunk(++chunk, rows, lineNumbers, parsers, pending, result);
+                    rows = new ArrayList<>(importChunkSize);
+                    lineNumbers = new ArrayList<>(importChunkSize);
                 }
-                if (line.length > 8 && !line[8].isEmpty()) {
-                    try {
-                        book.setPrice(Double.parseDouble(line[8])); // 价格
-                    } catch (Exception e) {
-                        // 价格格式错误，设为0
-                        book.setPrice(0.0);
-                    }
+            }
+            if (!rows.isEmpty()) {
+                submitChunk(++chunk, rows, lineNumbers, parsers, pending, result);
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable e) {
+            // 读取出错时仍放入结束标记，写入阶段处理完已提交的批次后结束并报告错误；写入阶段若已退出，这里会被中断
+            pending.put(END_OF_IMPORT);
+            throw e;
+        }
+        pending.put(END_OF_IMPORT);
+    }
+
+    private static void submitChunk(int chunk, List<String[]> rows, List<Integer> lineNumbers, ExecutorService parsers,
+                                    BlockingQueue<Future<ParsedChunk>> pending, ImportResult result)
+            throws InterruptedException {
+        pending.put(parsers.submit(() -> parseChunk(chunk, rows, lineNumbers, result)));
+    }
+
+    // 解析阶段：解析并校验一批行，校验不通过的行直接记为失败，不再送去写库
+    private static ParsedChunk parseChunk(int chunk, List<String[]> rows, List<Integer> lineNumbers,
+                                          ImportResult result) {
+        ParsedChunk parsed = new ParsedChunk(chunk, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Book book = parseBookRow(rows.get(i));
+            String error = validateBook(book);
+            if (error == null) {
+                parsed.books.add(book);
+                parsed.lineNumbers.add(lineNumbers.get(i));
+            } else {
+                parsed.invalid.add(new ImportResult.RowError(chunk, lineNumbers.get(i), error));
+            }
+        }
+        result.addParsed(rows.size());
+        return parsed;
+    }
+
+    // 写入阶段：按读取顺序逐批等待解析结果并写库，直到遇到结束标记（返回 true）或被取消（返回 false）
+    private boolean writeChunks(BlockingQueue<Future<ParsedChunk>> pending, ImportResult result, boolean upsert)
+            throws InterruptedException, ExecutionException {
+        // 已出现过的ISBN，在写入阶段按文件顺序判重
+        Set<String> seenIsbns = new HashSet<>();
+        Future<ParsedChunk> next;
+        while ((next = pending.take()) != END_OF_IMPORT) {
+            if (result.isCancelled()) {
+                return false;
+            }
+            ParsedChunk parsed = next.get();
+            result.addChunk();
+            for (ImportResult.RowError error : parsed.invalid) {
+                result.fail(error.getChunk(), error.getLine(), error.getMessage());
+            }
+            List<Book> books = new ArrayList<>(parsed.books.size());
+            List<Integer> lineNumbers = new ArrayList<>(parsed.books.size());
+            for (int i = 0; i < parsed.books.size(); i++) {
+                Book book = parsed.books.get(i);
+                if (book.getIsbn() != null && !seenIsbns.add(book.getIsbn())) {
+                    result.fail(parsed.chunk, parsed.lineNumbers.get(i), "ISBN在文件中重复：" + book.getIsbn());
+                    continue;
                 }
-                if (line.length > 9 && !line[9].isEmpty()) book.setDescription(line[9]); // 描述
+                books.add(book);
+                lineNumbers.add(parsed.lineNumbers.get(i));
+            }
+            if (!books.isEmpty()) {
+                importChunk(parsed.chunk, books, lineNumbers, result, upsert);
+            }
+        }
+        return true;
+    }
+
+    // 写入一批图书：整批成功则一次提交；失败时整批已回滚，逐行单独保存以定位失败的行
+    private void importChunk(int chunk, List<Book> books, List<Integer> lineNumbers, ImportResult result,
+                             boolean upsert) {
+        try {
+            writeBooks(books, result, upsert);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("第 {} 批图书导入失败，逐行重试: {}", chunk, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            book.setId(null);
+            try {
+                writeBooks(List.of(book), result, upsert);
+            } catch (RuntimeException e) {
+                result.fail(chunk, lineNumbers.get(i), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+
+    private void writeBooks(List<Book> books, ImportResult result, boolean upsert) {
+        if (upsert) {
+            result.addUpdated(bookService.upsertBooks(books));
+        } else {
+            bookService.addBooks(books);
+        }
+        result.addImported(books.size());
+    }
+
+    // 按表结构校验必填项和长度，通过返回 null
+    private static String validateBook(Book book) {
+        if (book.getTitle() == null || book.getTitle().isBlank()) {
+            return "书名不能为空";
+        }
+        if (book.getTitle().length() > 500) {
+            return "书名超过500个字符";
+        }
+        if (book.getIsbn() != null && book.getIsbn().length() > 20) {
+            return "ISBN超过20个字符";
+        }
+        if (book.getAuthor() != null && book.getAuthor().length() > 200) {
+            return "作者超过200个字符";
+        }
+        return null;
+    }
+
+    private static ThreadFactory importThreadFactory(String prefix) {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+        factory.setDaemon(true);
+        return factory;
+    }
 
-                // 保存图书
+    // 解析一行CSV为图书，格式错误的数值字段使用默认值；册数为空时留空，新增时再取默认值，按ISBN更新时保留原值
+    private static Book parseBookRow(String[] line) {
+        // 创建图书对象，字段映射与模板格式匹配："书名", "作者", "出版社", "出版日期", "ISBN", "分类", "总册数", "可借册数", "价格", "描述"
+        Book book = new Book();
+        book.setTotalCopies(null);
+        book.setAvailableCopies(null);
+        if (line.length > 0 && !line[0].isEmpty()) book.setTitle(line[0]); // 书名
+        if (line.length > 1 && !line[1].isEmpty()) book.setAuthor(line[1]); // 作者
+        if (line.length > 2 && !line[2].isEmpty()) book.setPublisher(line[2]); // 出版社
+        if (line.length > 3 && !line[3].isEmpty()) {
+            try {
+                book.setPublishDate(LocalDate.parse(line[3], DATE_FORMATTER)); // 出版日期
+            } catch (Exception e) {
+                // 日期格式错误，跳过
+                System.err.println("日期格式错误: " + line[3]);
+            }
+        }
+        // 确保ISBN作为字符串处理，避免科学计数法问题
+        if (line.length > 4 && !line[4].isEmpty()) {
+            // 去除可能的前后空白并确保为字符串格式
+            String isbn = line[4].trim();
+            // 处理Excel可能自动转换的数字格式
+            if (isbn.contains("E+")) {
+                // 如果是科学计数法格式，尝试转换为普通数字字符串
                 try {
-                    bookService.addBook(book);
-                    importedCount++;
+                    BigDecimal bd = new BigDecimal(isbn);
+                    isbn = bd.toPlainString();
                 } catch (Exception e) {
-                    System.err.println("保存图书失败: " + book.getTitle() + ", 错误: " + e.getMessage());
-                    // 继续处理下一行，不中断整个导入过程
+                    // 如果转换失败，使用原始值
                 }
+            } else if (isbn.contains(".") && DECIMAL_PATTERN.matcher(isbn).matches()) {
+                // 如果是小数格式，去除末尾的0和小数点
+                isbn = TRAILING_ZEROS_PATTERN.matcher(isbn).replaceAll("");
             }
-        } catch (IOException e) {
-            throw new RuntimeException("读取CSV文件失败", e);
-        } catch (com.opencsv.exceptions.CsvValidationException e) {
-            throw new RuntimeException("CSV格式验证失败", e);
+            book.setIsbn(isbn);
         }
-
-        return importedCount;
-    }
-    public File exportUsersToCsv() {
-        try {
-            File tempFile = File.createTempFile("users_", ".csv");
-            try (CSVWriter writer = new CSVWriter(new FileWriter(tempFile))) {
-                // 写入用户表头
-                String[] header = {"ID", "Username", "Email", "FullName", "Roles", "Enabled"};
-                writer.writeNext(header);
-
-                // 获取用户数据并写入
-                // List<User> users = userService.getAllUsers();
-                // for (User user : users) {
-                //     String[] data = {
-                //         user.getId().toString(),
-                //         user.getUsername(),
-                //         user.getEmail(),
-                //         user.getFullName(),
-                //         user.getRoles().stream().map(Role::getName).collect(Collectors.joining(",")),
-                //         String.valueOf(user.isEnabled())
-                //     };
-                //     writer.writeNext(data);
-                // }
-            }
-            return tempFile;
-        } catch (IOException e) {
-            throw new RuntimeException("导出用户CSV失败", e);
+        // 分类字段暂时不处理，需要额外的分类服务
+        if (line.length > 6 && !line[6].isEmpty()) {
+            try {
+                book.setTotalCopies(Integer.parseInt(line[6])); // 总册数
+            } catch (Exception e) {
+                book.setTotalCopies(1);
+            }
+        }
+        if (line.length > 7 && !line[7].isEmpty()) {
+            try {
+                book.setAvailableCopies(Integer.parseInt(line[7])); // 可借册数
+            } catch (Exception e) {
+                book.setAvailableCopies(1);
+            }
         }
+        if (line.length > 8 && !line[8].isEmpty()) {
+            try {
+                book.setPrice(Double.parseDouble(line[8])); // 价格
+            } catch (Exception e) {
+                // 价格格式错误，设为0
+                book.setPrice(0.0);
+            }
+        }
+        if (line.length > 9 && !line[9].isEmpty()) book.setDescription(line[9]); // 描述
+        return book;
     }
 
     public int importUsersFromCsv(MultipartFile file) {
@@ -194,4 +457,18 @@ public class DataImportExportService {
         return 0;
     }
 
+    // 一批解析结果：可写库的图书及其行号，以及校验失败的行
+    private static class ParsedChunk {
+        final int chunk;
+        final List<Book> books;
+        final List<Integer> lineNumbers;
+        final List<ImportResult.RowError> invalid = new ArrayList<>();
+
+        ParsedChunk(int chunk, int size) {
+            this.chunk = chunk;
+            this.books = new ArrayList<>(size);
+            this.lineNumbers = new ArrayList<>(size);
+        }
+    }
+
 }
\ No newline at end of file
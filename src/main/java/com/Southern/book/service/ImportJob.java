@@ -0,0 +1,103 @@
+package com.Southern.book.service;
+
+import com.Southern.book.dto.ImportResult;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 后台导入任务：状态和进度供 /data/jobs/{id} 查询，计数直接读取导入过程中实时更新的 ImportResult
+public class ImportJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final String id;
+    private final String fileName;
+    private final boolean upsert;
+    private final long submittedAt = System.currentTimeMillis();
+    private final ImportResult result = new ImportResult();
+
+    // 上传内容的临时副本，请求结束后 MultipartFile 即被清理，任务从这里读取
+    private final Path file;
+
+    // 排队中的任务只能被开始运行或被取消其中之一，两者都用比较并交换修改状态
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String message;
+    private volatile Future<?> future;
+
+    ImportJob(String id, String fileName, boolean upsert, Path file) {
+        this.id = id;
+        this.fileName = fileName;
+        this.upsert = upsert;
+        this.file = file;
+    }
+
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public boolean isUpsert() { return upsert; }
+    public State getState() { return state.get(); }
+    public String getMessage() { return message; }
+    public long getSubmittedAt() { return submittedAt; }
+    public long getStartedAt() { return startedAt; }
+    public long getFinishedAt() { return finishedAt; }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    // 已解析、已写入（其中按ISBN更新的）、被拒绝的行数
+    public int getParsed() { return result.getParsed(); }
+    public int getWritten() { return result.getImported(); }
+    public int getUpdated() { return result.getUpdated(); }
+    public int getRejected() { return result.getFailed(); }
+    public List<ImportResult.RowError> getErrors() { return result.getErrors(); }
+
+    // 写入吞吐量（行/秒），按开始运行到结束（或当前）的时间计算
+    public double getRowsPerSecond() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        long elapsed = (isFinished() ? finishedAt : System.currentTimeMillis()) - startedAt;
+        return elapsed > 0 ? result.getImported() * 1000.0 / elapsed : 0;
+    }
+
+    @JsonIgnore
+    ImportResult getResult() { return result; }
+
+    @JsonIgnore
+    Path getFile() { return file; }
+
+    @JsonIgnore
+    Future<?> getFuture() { return future; }
+
+    void setFuture(Future<?> future) { this.future = future; }
+
+    // 开始运行，任务已在排队时被取消则返回 false
+    boolean start() {
+        if (!state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            return false;
+        }
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    // 取消尚未开始的任务并结束，任务已开始运行时返回 false，由运行线程停止后结束
+    boolean cancelQueued() {
+        if (!state.compareAndSet(State.QUEUED, State.CANCELLED)) {
+            return false;
+        }
+        finishedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    // 运行结束，只由运行线程调用一次
+    void finish(State state, String message) {
+        this.message = message;
+        this.finishedAt = System.currentTimeMillis();
+        this.state.set(state);
+    }
+}
@@ -0,0 +1,135 @@
+package com.Southern.book.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 后台图书导入：上传后把文件存为临时文件并提交到专用的有界线程池，立即返回任务ID，
+// 请求线程不再等待整个导入完成。线程和排队名额都满时拒绝新的导入
+@Service
+public class ImportJobService {
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    @Autowired
+    private DataImportExportService dataImportExportService;
+
+    // 已结束的任务保留多久后清理
+    @Value("${book.import.job-retention-ms:3600000}")
+    private long retentionMs;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(@Value("${book.import.job-threads:2}") int threads,
+                            @Value("${book.import.job-queue-capacity:10}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("book-import-job-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    // 提交导入任务，返回排队中的任务；upsert 为 true 时按ISBN有则更新、无则新增。导入任务已满时抛出 IllegalStateException
+    public ImportJob submit(MultipartFile file, boolean upsert) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("文件不能为空");
+        }
+        Path copy = Files.createTempFile("book-import-", ".csv");
+        try {
+            file.transferTo(copy);
+        } catch (IOException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), upsert, copy);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(copy);
+            throw new IllegalStateException("导入任务过多，请稍后再试");
+        }
+        log.info("图书导入任务 {} 已提交：{}", job.getId(), job.getFileName());
+        return job;
+    }
+
+    public ImportJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    // 取消任务：排队中的直接结束并移出队列，运行中的在当前批写完后停止，由运行线程结束任务并删除临时文件，
+    // 已写入的行保留。任务不存在返回 null
+    public ImportJob cancel(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null || job.isFinished()) {
+            return job;
+        }
+        job.getResult().cancel();
+        if (job.cancelQueued()) {
+            Future<?> future = job.getFuture();
+            if (future != null) {
+                future.cancel(false);
+            }
+            deleteFile(job);
+        }
+        return job;
+    }
+
+    private void run(ImportJob job) {
+        // 排队期间已被取消，取消时已结束任务并删除临时文件
+        if (!job.start()) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(job.getFile())) {
+            dataImportExportService.importBooksFromCsv(in, job.getResult(), job.isUpsert());
+            job.finish(job.getResult().isCancelled() ? ImportJob.State.CANCELLED : ImportJob.State.COMPLETED, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("图书导入任务 {} 失败", job.getId(), e);
+            job.finish(ImportJob.State.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } finally {
+            deleteFile(job);
+        }
+    }
+
+    // 定时清理保留期已过的已结束任务
+    @Scheduled(fixedDelayString = "${book.import.job-retention-ms:3600000}")
+    public void purgeFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.getResult().cancel());
+        executor.shutdownNow();
+    }
+
+    private static void deleteFile(ImportJob job) {
+        try {
+            Files.deleteIfExists(job.getFile());
+        } catch (IOException e) {
+            log.warn("删除导入临时文件失败: {}", job.getFile(), e);
+        }
+    }
+}
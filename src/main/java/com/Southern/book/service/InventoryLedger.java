@@ -0,0 +1,327 @@
+package com.Southern.book.service;
+
+import com.Southern.book.search.BookChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 内存库存账本（可选，book.inventory.ledger.enabled=true 时启用）：
+// 热门图书集中借阅时，可借数量在内存中按分段锁扣减，不再每次争抢 books 表的行锁；
+// 扣减产生的增量由后台定时任务批量写回 available_copies。
+// 借阅记录仍同步写库，启动时按未归还的借阅记录重算可借数量，进程异常退出时未写回的增量不会造成偏差。
+// 借阅路径上只使用调用方事务已持有的连接，不再另开事务，热门图书集中借阅时不会占满连接池
+@Service
+public class InventoryLedger {
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final int STRIPES = 64;
+
+    private static final String FLUSH_SQL =
+            "UPDATE books SET available_copies = LEAST(COALESCE(total_copies, available_copies + ?), " +
+            "GREATEST(0, available_copies + ?)) WHERE id = ?";
+
+    private static final String RECONCILE_SQL =
+            "UPDATE books b SET available_copies = GREATEST(0, COALESCE(b.total_copies, 0) - " +
+            "(SELECT COUNT(*) FROM borrow_records br WHERE br.book_id = b.id AND br.status <> 'RETURNED'))";
+
+    @Value("${book.inventory.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // 写回与重新加载互斥，保证重新加载时不会漏掉正在写回的增量；写回时先取得连接再加锁并保持到事务结束
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile boolean active;
+
+    public InventoryLedger(PlatformTransactionManager transactionManager) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        // 启动校准和写回在独立事务中执行
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // 启动时校准库存后再启用账本，校准前的借阅仍走数据库条件更新
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        int updated = transactionTemplate.execute(status -> jdbcTemplate.update(RECONCILE_SQL));
+        entries.clear();
+        active = true;
+        log.info("库存账本已启用，按借阅记录校准了 {} 本图书的可借数量", updated);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    // 预留一本：成功返回 true，图书不存在或已无可借副本返回 false。
+    // 在事务中调用时，事务回滚会自动归还预留
+    public boolean reserve(Long bookId) {
+        Entry entry = loadedEntry(bookId);
+        if (entry == null) {
+            return false;
+        }
+        ReentrantLock lock = stripe(bookId);
+        boolean soldOut;
+        lock.lock();
+        try {
+            if (entry.available <= 0) {
+                return false;
+            }
+            entry.available--;
+            entry.pending--;
+            soldOut = entry.available == 0;
+        } finally {
+            lock.unlock();
+        }
+        if (soldOut) {
+            dashboardCounters.adjustAvailableBooks(-1);
+        }
+        afterRollback(() -> adjust(bookId, 1));
+        return true;
+    }
+
+    // 归还一本：在事务中调用时等事务提交后再生效
+    public boolean release(Long bookId) {
+        if (loadedEntry(bookId) == null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    adjust(bookId, 1);
+                }
+            });
+        } else {
+            adjust(bookId, 1);
+        }
+        return true;
+    }
+
+    // 当前内存中的可借数量，未加载时返回 null
+    public Integer getAvailableCopies(Long bookId) {
+        Entry entry = entries.get(bookId);
+        return entry == null ? null : entry.available;
+    }
+
+    // 图书被修改后（管理员可能直接修改了可借数量）在事务提交后立即按库中数量重新加载，删除后丢弃。
+    // 尚未加载的图书不处理，首次借阅时再加载
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!active) {
+            return;
+        }
+        Long bookId = event.getBookId();
+        if (event.isDeleted()) {
+            ReentrantLock lock = stripe(bookId);
+            lock.lock();
+            try {
+                entries.remove(bookId);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        if (!entries.containsKey(bookId)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            ReentrantLock lock = stripe(bookId);
+            lock.lock();
+            try {
+                Entry entry = entries.get(bookId);
+                if (entry == null) {
+                    return;
+                }
+                Integer stored = readAvailableCopies(bookId);
+                if (stored == null) {
+                    entries.remove(bookId);
+                } else {
+                    entry.available = stored + entry.pending;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // 定时把累计增量批量写回数据库，写库失败时增量放回，下一轮重试
+    @Scheduled(fixedDelayString = "${book.inventory.ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!active) {
+            return;
+        }
+        try {
+            // 先开启事务取得连接再加写回锁，持有写回锁时不会再等待连接池
+            transactionTemplate.executeWithoutResult(status -> flushPending());
+        } catch (RuntimeException ex) {
+            log.warn("库存账本写回失败，下次重试: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // 在写回事务中调用：加写回锁直到事务结束，取出各图书的增量批量更新；事务未提交时把增量放回
+    private void flushPending() {
+        flushLock.lock();
+        List<Object[]> batch = new ArrayList<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status != STATUS_COMMITTED) {
+                        for (Object[] row : batch) {
+                            restorePending((Long) row[2], (Integer) row[0]);
+                        }
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        });
+        for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+            ReentrantLock lock = stripe(e.getKey());
+            lock.lock();
+            try {
+                int delta = e.getValue().pending;
+                if (delta != 0) {
+                    e.getValue().pending = 0;
+                    batch.add(new Object[]{delta, delta, e.getKey()});
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            log.debug("库存账本写回 {} 本图书的可借数量", batch.size());
+        }
+    }
+
+    // 获取账本条目，首次访问时在调用方的连接上从数据库加载。新条目没有未写回的增量，
+    // 库中数量只会被已加载条目的写回修改，因此即使读到调用方事务的快照也不会漏掉增量
+    private Entry loadedEntry(Long bookId) {
+        Entry entry = entries.get(bookId);
+        if (entry != null) {
+            return entry;
+        }
+        ReentrantLock lock = stripe(bookId);
+        lock.lock();
+        try {
+            entry = entries.get(bookId);
+            if (entry == null) {
+                Integer stored = readAvailableCopies(bookId);
+                if (stored == null) {
+                    return null;
+                }
+                entry = new Entry();
+                entry.available = stored;
+                entries.put(bookId, entry);
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Integer readAvailableCopies(Long bookId) {
+        return jdbcTemplate.query("SELECT available_copies FROM books WHERE id = ?",
+                rs -> rs.next() ? rs.getInt(1) : null, bookId);
+    }
+
+    private void adjust(Long bookId, int delta) {
+        boolean restored = false;
+        ReentrantLock lock = stripe(bookId);
+        lock.lock();
+        try {
+            Entry entry = entries.get(bookId);
+            if (entry != null) {
+                restored = entry.available <= 0 && entry.available + delta > 0;
+                entry.available += delta;
+                entry.pending += delta;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (restored) {
+            dashboardCounters.adjustAvailableBooks(1);
+        }
+    }
+
+    private void restorePending(Long bookId, int delta) {
+        ReentrantLock lock = stripe(bookId);
+        lock.lock();
+        try {
+            Entry entry = entries.get(bookId);
+            if (entry != null) {
+                entry.pending += delta;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private ReentrantLock stripe(Long bookId) {
+        return stripes[(Long.hashCode(bookId) & 0x7fffffff) % STRIPES];
+    }
+
+    // 单本图书的账本：available 为内存中的可借数量，pending 为尚未写回数据库的增量，均由所在分段锁保护
+    private static class Entry {
+        int available;
+        int pending;
+    }
+}
@@ -0,0 +1,55 @@
+package com.Southern.book.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 逾期状态定时任务：启动后执行一次，之后每天凌晨执行，记录最近一次更新的条数和耗时
+@Component
+public class OverdueStatusJob {
+    private static final Logger log = LoggerFactory.getLogger(OverdueStatusJob.class);
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Value("${book.overdue.chunk-size:500}")
+    private int chunkSize;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runOnStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${book.overdue.cron:0 5 0 * * *}")
+    public void run() {
+        long start = System.currentTimeMillis();
+        try {
+            int updated = borrowService.updateOverdueStatus(chunkSize);
+            long duration = System.currentTimeMillis() - start;
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("updated", updated);
+            report.put("durationMs", duration);
+            report.put("finishedAt", LocalDateTime.now().toString());
+            lastRun = report;
+            log.info("逾期状态更新完成：{} 条记录标记为逾期，耗时 {} ms", updated, duration);
+        } catch (RuntimeException e) {
+            log.warn("逾期状态更新失败: {}", e.getMessage());
+        }
+    }
+
+    // 最近一次执行结果（更新条数、耗时、完成时间），尚未执行时为空
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+}
@@ -0,0 +1,181 @@
+package com.Southern.book.service;
+
+import com.Southern.book.repository.BorrowRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 逾期检测：未到期的借阅按应还日期分桶（TreeMap，按日期有序），定时检查只取出已过期的桶，
+// 不再扫描 borrow_records；到期的借阅移入逾期集合并批量更新状态。
+// 启动时从未归还的借阅记录加载，借阅和归还事务提交后增量维护，逾期数量和集合可直接读取
+@Service
+public class OverdueTracker {
+    private static final Logger log = LoggerFactory.getLogger(OverdueTracker.class);
+
+    // 每批更新状态的记录数
+    private static final int FLIP_CHUNK_SIZE = 500;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 应还日期 -> 借阅记录ID，只包含尚未逾期的借阅
+    private final TreeMap<LocalDate, Set<Long>> buckets = new TreeMap<>();
+    private final Map<Long, LocalDate> dueDates = new HashMap<>();
+
+    // 已逾期且未归还的借阅记录ID
+    private final Set<Long> overdue = ConcurrentHashMap.newKeySet();
+
+    // 加载期间归还的记录，加载完成后剔除，避免加载查询的旧数据把它们重新加回来
+    private Set<Long> returnedWhileSeeding = new HashSet<>();
+
+    private volatile boolean ready;
+
+    // 启动时加载所有未归还的借阅
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows;
+        try {
+            rows = borrowRecordRepository.findActiveDueDates();
+        } catch (RuntimeException e) {
+            log.warn("逾期检测数据加载失败: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                if (!returnedWhileSeeding.contains(id) && !overdue.contains(id) && !dueDates.containsKey(id)) {
+                    add(id, (LocalDate) row[1]);
+                }
+            }
+            returnedWhileSeeding = null;
+            ready = true;
+        }
+        log.info("逾期检测已加载 {} 条未归还借阅，耗时 {} ms", rows.size(), System.currentTimeMillis() - start);
+        tick();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // 新增借阅，在事务中调用时等事务提交后再生效
+    public void track(Long recordId, LocalDate dueDate) {
+        afterCommit(() -> {
+            synchronized (this) {
+                add(recordId, dueDate);
+            }
+        });
+    }
+
+    // 借阅已归还，在事务中调用时等事务提交后再生效
+    public void untrack(Long recordId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                LocalDate dueDate = dueDates.remove(recordId);
+                if (dueDate != null) {
+                    Set<Long> bucket = buckets.get(dueDate);
+                    bucket.remove(recordId);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(dueDate);
+                    }
+                }
+                overdue.remove(recordId);
+                if (returnedWhileSeeding != null) {
+                    returnedWhileSeeding.add(recordId);
+                }
+            }
+        });
+    }
+
+    // 当前逾期数量
+    public int getOverdueCount() {
+        return overdue.size();
+    }
+
+    // 当前逾期的借阅记录ID（只读视图）
+    public Set<Long> getOverdueRecordIds() {
+        return Collections.unmodifiableSet(overdue);
+    }
+
+    // 每分钟检查一次：取出应还日期早于今天的桶，移入逾期集合并更新数据库状态
+    @Scheduled(fixedDelayString = "${book.overdue.tick-interval-ms:60000}")
+    public void tick() {
+        if (!ready) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        List<Long> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<LocalDate, Set<Long>>> it = buckets.headMap(today).entrySet().iterator();
+            while (it.hasNext()) {
+                for (Long id : it.next().getValue()) {
+                    dueDates.remove(id);
+                    overdue.add(id);
+                    expired.add(id);
+                }
+                it.remove();
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        int updated = 0;
+        try {
+            for (int from = 0; from < expired.size(); from += FLIP_CHUNK_SIZE) {
+                List<Long> chunk = expired.subList(from, Math.min(from + FLIP_CHUNK_SIZE, expired.size()));
+                Integer count = transactionTemplate.execute(status -> borrowRecordRepository.markOverdue(chunk, today));
+                updated += count == null ? 0 : count;
+            }
+        } catch (RuntimeException e) {
+            // 状态更新失败不影响内存中的逾期集合，定时的逾期状态任务会补上
+            log.warn("逾期状态更新失败: {}", e.getMessage());
+        }
+        log.debug("逾期检测：{} 条借阅到期，更新状态 {} 条", expired.size(), updated);
+    }
+
+    // 调用方需持有锁：已过应还日期的直接进入逾期集合
+    private void add(Long recordId, LocalDate dueDate) {
+        if (dueDate.isBefore(LocalDate.now())) {
+            overdue.add(recordId);
+            return;
+        }
+        dueDates.put(recordId, dueDate);
+        buckets.computeIfAbsent(dueDate, d -> new HashSet<>()).add(recordId);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
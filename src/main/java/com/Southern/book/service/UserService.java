@@ -5,6 +5,8 @@ import com.Southern.book.entity.User;
 import com.Southern.book.repository.RoleRepository;
 import com.Southern.book.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -25,6 +27,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
     // 获取所有用户
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -45,12 +50,45 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
 
+    // 占用一个借阅名额，已达上限或用户不存在时返回 false
+    @Transactional
+    public boolean acquireBorrowSlot(Long userId, int limit) {
+        return userRepository.incrementActiveBorrowCount(userId, limit) == 1;
+    }
+
+    // 一次占用多个借阅名额（批量借阅），占用后超过上限或用户不存在时返回 false
+    @Transactional
+    public boolean acquireBorrowSlots(Long userId, int count, int limit) {
+        return userRepository.incrementActiveBorrowCountBy(userId, count, limit) == 1;
+    }
+
+    // 一次释放多个借阅名额
+    @Transactional
+    public void releaseBorrowSlots(Long userId, int count) {
+        userRepository.decrementActiveBorrowCountBy(userId, count);
+    }
+
+    // 释放一个借阅名额
+    @Transactional
+    public boolean releaseBorrowSlot(Long userId) {
+        return userRepository.decrementActiveBorrowCount(userId) == 1;
+    }
+
+    // 启动时按借阅记录校准各用户的借阅数量，修正历史数据和异常中断留下的偏差
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void reconcileActiveBorrowCounts() {
+        userRepository.reconcileActiveBorrowCounts();
+    }
+
     // 添加用户
     @Transactional
     public User addUser(User user) {
         // 加密密码
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        dashboardCounters.usersChanged(1);
+        return saved;
     }
 
     // 更新用户
@@ -121,6 +159,7 @@ public class UserService {
     public boolean deleteUser(Long id) {
         return userRepository.findById(id).map(user -> {
             userRepository.delete(user);
+            dashboardCounters.usersChanged(-1);
             return true;
         }).orElse(false);
     }
@@ -64,9 +64,17 @@ CREATE TABLE `borrow_records`  (
   `status` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL,
   `book_id` bigint(20) NOT NULL,
   `user_id` bigint(20) NOT NULL,
+  `username` varchar(50) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL,
+  `book_title` varchar(500) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL,
   PRIMARY KEY (`id`) USING BTREE,
   INDEX `FK9ep13xg9kn8vo3w0ntvd08tco`(`book_id`) USING BTREE,
   INDEX `FKe5k0iaamaypstfhuluoa40yom`(`user_id`) USING BTREE,
+  INDEX `idx_borrow_status_due`(`status`, `due_date`) USING BTREE,
+  INDEX `idx_borrow_user_status`(`user_id`, `status`) USING BTREE,
+  INDEX `idx_borrow_username`(`username`) USING BTREE,
+  INDEX `idx_borrow_book_title`(`book_title`) USING BTREE,
+  FULLTEXT INDEX `ft_borrow_username`(`username`) WITH PARSER ngram,
+  FULLTEXT INDEX `ft_borrow_book_title`(`book_title`) WITH PARSER ngram,
   CONSTRAINT `FK9ep13xg9kn8vo3w0ntvd08tco` FOREIGN KEY (`book_id`) REFERENCES `books` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT,
   CONSTRAINT `FKe5k0iaamaypstfhuluoa40yom` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = Dynamic;
@@ -145,6 +153,7 @@ CREATE TABLE `users`  (
   `full_name` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL,
   `phone` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NULL DEFAULT NULL,
   `enabled` tinyint(1) NULL DEFAULT 1,
+  `active_borrow_count` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE INDEX `username`(`username`) USING BTREE,
   UNIQUE INDEX `email`(`email`) USING BTREE
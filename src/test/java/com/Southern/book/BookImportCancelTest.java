@@ -0,0 +1,138 @@
+package com.Southern.book;
+
+import com.Southern.book.dto.ImportResult;
+import com.Southern.book.service.DataImportExportService;
+import com.Southern.book.service.ImportJob;
+import com.Southern.book.service.ImportJobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 取消多批次的图书导入：读取线程此时可能正阻塞在已满的队列上，导入结束后不应留下任何导入线程；
+// 通过导入任务取消时，运行中的任务由运行线程在停止写入后结束，排队中的任务立即结束
+@SpringBootTest(properties = {
+        "book.import.chunk-size=10",
+        "book.import.parse-threads=2",
+        "book.import.job-threads=1"
+})
+public class BookImportCancelTest {
+
+    private static final int ROWS = 2000;
+
+    // 通过导入任务导入的行数，足够多以保证取消时任务仍在写入
+    private static final int JOB_ROWS = 20000;
+
+    @Autowired
+    private DataImportExportService dataImportExportService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String isbnPrefix = "IC" + System.nanoTime() % 1_000_000_000L + "-";
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM books WHERE isbn LIKE ?", isbnPrefix + "%");
+    }
+
+    @Test
+    public void testCancelLeavesNoImportThreads() throws Exception {
+        String csv = buildCsv(isbnPrefix, ROWS);
+        ImportResult result = new ImportResult();
+        // 写入两批后取消，此时读取线程已把队列填满
+        Thread canceller = new Thread(() -> {
+            while (result.getChunks() < 2) {
+                Thread.onSpinWait();
+            }
+            result.cancel();
+        });
+        canceller.start();
+
+        dataImportExportService.importBooksFromCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), result, false);
+        canceller.join(10000);
+
+        assertTrue(result.isCancelled());
+        assertTrue(result.getImported() < ROWS, "取消后不应导入全部行");
+        assertEquals(List.of(), awaitImportThreadsExit());
+    }
+
+    @Test
+    public void testCancelRunningAndQueuedJobs() throws Exception {
+        ImportJob running = importJobService.submit(csvFile(isbnPrefix + "r"), false);
+        ImportJob queued = importJobService.submit(csvFile(isbnPrefix + "q"), false);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (running.getWritten() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ImportJob.State.RUNNING, running.getState());
+
+        // 只有一个任务线程，第二个任务仍在排队，取消后立即结束
+        importJobService.cancel(queued.getId());
+        assertEquals(ImportJob.State.CANCELLED, queued.getState());
+        assertTrue(queued.isFinished());
+
+        // 运行中的任务在当前批写完后由运行线程结束，结束后计数和结束时间不再变化
+        importJobService.cancel(running.getId());
+        deadline = System.currentTimeMillis() + 10000;
+        while (!running.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(running.isFinished());
+        int written = running.getWritten();
+        long finishedAt = running.getFinishedAt();
+        Thread.sleep(500);
+        assertEquals(ImportJob.State.CANCELLED, running.getState());
+        assertEquals(written, running.getWritten());
+        assertEquals(finishedAt, running.getFinishedAt());
+        assertTrue(written < JOB_ROWS, "取消后不应导入全部行");
+        assertEquals(0, queued.getWritten());
+        assertEquals(List.of(), awaitImportThreadsExit());
+    }
+
+    // 读取、解析线程被中断后应在短时间内退出，返回仍存活的线程名
+    private static List<String> awaitImportThreadsExit() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        List<String> remaining = importThreads();
+        while (!remaining.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            remaining = importThreads();
+        }
+        return remaining;
+    }
+
+    private static String buildCsv(String isbnPrefix, int rows) {
+        StringBuilder csv = new StringBuilder("书名,作者,出版社,出版日期,ISBN\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Cancel Book ").append(i).append(",Author,,,").append(isbnPrefix).append(i).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static MockMultipartFile csvFile(String isbnPrefix) {
+        return new MockMultipartFile("file", "books.csv", "text/csv",
+                buildCsv(isbnPrefix, JOB_ROWS).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 单次导入创建的读取、解析线程；任务线程池（book-import-job-）的线程常驻，不在其中
+    private static List<String> importThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(Thread::isAlive)
+                .map(Thread::getName)
+                .filter(name -> name.startsWith("book-import-") && !name.startsWith("book-import-job-"))
+                .toList();
+    }
+}
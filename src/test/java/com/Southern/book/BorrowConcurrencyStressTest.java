@@ -0,0 +1,156 @@
+package com.Southern.book;
+
+import com.Southern.book.entity.Book;
+import com.Southern.book.entity.User;
+import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.repository.UserRepository;
+import com.Southern.book.service.BorrowService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 并发借阅压力测试：多线程同时借阅，验证库存不会超借、借阅上限不会被突破，并输出每秒借阅数
+@SpringBootTest
+public class BorrowConcurrencyStressTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final List<Book> books = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (User user : users) {
+            borrowRecordRepository.deleteAll(borrowRecordRepository.findByUser(user));
+        }
+        bookRepository.deleteAll(books);
+        userRepository.deleteAll(users);
+    }
+
+    // 多个用户争抢同一本书：成功次数必须等于册数，可借数量最终为0
+    @Test
+    public void testNoOversellUnderContention() throws Exception {
+        int copies = 20;
+        int borrowers = 200;
+        Book book = newBook(copies);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < borrowers; i++) {
+            Long userId = newUser("stress_" + i).getId();
+            tasks.add(() -> tryBorrow(userId, book.getId()));
+        }
+
+        int succeeded = runConcurrently(tasks, "同一本书争抢");
+
+        assertEquals(copies, succeeded);
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+    }
+
+    // 同一用户同时借阅多本不同的书：成功次数不能超过借阅上限
+    @Test
+    public void testBorrowLimitUnderContention() throws Exception {
+        Long userId = newUser("stress_quota").getId();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Long bookId = newBook(1).getId();
+            tasks.add(() -> tryBorrow(userId, bookId));
+        }
+
+        int succeeded = runConcurrently(tasks, "单用户借阅上限");
+
+        assertEquals(BorrowService.MAX_ACTIVE_BORROWS, succeeded);
+        assertEquals(BorrowService.MAX_ACTIVE_BORROWS,
+                userRepository.findById(userId).orElseThrow().getActiveBorrowCount());
+    }
+
+    // 各用户借阅不同的书（无热点冲突），测量借阅吞吐量
+    @Test
+    public void testBorrowThroughput() throws Exception {
+        int borrowers = 400;
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < borrowers; i++) {
+            Long userId = newUser("stress_tp_" + i).getId();
+            Long bookId = newBook(1).getId();
+            tasks.add(() -> tryBorrow(userId, bookId));
+        }
+
+        int succeeded = runConcurrently(tasks, "无冲突借阅");
+
+        assertEquals(borrowers, succeeded);
+    }
+
+    private boolean tryBorrow(Long userId, Long bookId) {
+        try {
+            borrowService.borrowBook(userId, bookId, 14);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    // 所有任务在同一时刻放行，返回成功次数并输出每秒借阅数
+    private int runConcurrently(List<Callable<Boolean>> tasks, String name) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Callable<Boolean> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        executor.shutdown();
+        System.out.printf("%s：%d 次请求，成功 %d 次，耗时 %.3f 秒，%.1f 次借阅/秒%n",
+                name, tasks.size(), succeeded, seconds, tasks.size() / seconds);
+        return succeeded;
+    }
+
+    private Book newBook(int copies) {
+        String suffix = String.valueOf(System.nanoTime());
+        Book book = new Book("ST" + suffix.substring(suffix.length() - 12), "Stress Book " + suffix, "Stress");
+        book.setTotalCopies(copies);
+        book.setAvailableCopies(copies);
+        book = bookRepository.save(book);
+        books.add(book);
+        return book;
+    }
+
+    private User newUser(String name) {
+        User user = userRepository.save(new User(name + "_" + System.nanoTime(), "x", null, name));
+        users.add(user);
+        return user;
+    }
+}
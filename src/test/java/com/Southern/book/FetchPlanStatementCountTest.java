@@ -0,0 +1,127 @@
+package com.Southern.book;
+
+import com.Southern.book.entity.Book;
+import com.Southern.book.entity.BorrowRecord;
+import com.Southern.book.entity.User;
+import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 校验借阅相关页面每次请求执行的SQL语句数量固定，不随记录条数增长（无N+1查询）
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FetchPlanStatementCountTest {
+
+    private static final String PATRON = "fetchplan_patron";
+
+    // 每个页面允许的最大语句数：数据查询、下拉框数据和少量固定查询
+    private static final long MAX_STATEMENTS_PER_REQUEST = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final List<BorrowRecord> records = new ArrayList<>();
+    private final List<Book> books = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    // 准备数据：每条借阅记录对应不同的用户和图书，若存在N+1查询，语句数会随记录数明显增长
+    @BeforeEach
+    public void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        User patron = userRepository.findByUsername(PATRON).orElse(null);
+        if (patron == null) {
+            patron = userRepository.save(new User(PATRON, "x", null, "Fetch Plan"));
+            users.add(patron);
+        }
+        for (int i = 0; i < 5; i++) {
+            User user = i == 0 ? patron : userRepository.save(new User("fetchplan_" + i + "_" + suffix, "x", null, "User " + i));
+            if (i != 0) {
+                users.add(user);
+            }
+            Book book = new Book("FP" + suffix.substring(suffix.length() - 8) + i, "Fetch Plan Book " + i, "Author " + i);
+            book = bookRepository.save(book);
+            books.add(book);
+            LocalDate borrowDate = LocalDate.now().minusDays(30);
+            BorrowRecord record = new BorrowRecord(user, book, borrowDate, borrowDate.plusDays(14));
+            record.setStatus("BORROWED");
+            records.add(borrowRecordRepository.save(record));
+        }
+        // 给本人再补几条记录，用于“我的借阅”页面
+        for (int i = 1; i < books.size(); i++) {
+            LocalDate borrowDate = LocalDate.now().minusDays(20);
+            BorrowRecord record = new BorrowRecord(patron, books.get(i), borrowDate, borrowDate.plusDays(14));
+            record.setStatus("RETURNED");
+            record.setReturnDate(borrowDate.plusDays(7));
+            records.add(borrowRecordRepository.save(record));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        borrowRecordRepository.deleteAll(records);
+        bookRepository.deleteAll(books);
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testBorrowRecordsPageStatementCount() throws Exception {
+        assertStatementCount("/borrow/records");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testOverduePageStatementCount() throws Exception {
+        assertStatementCount("/borrow/overdue");
+    }
+
+    @Test
+    @WithMockUser(username = PATRON, roles = "USER")
+    public void testMyRecordsPageStatementCount() throws Exception {
+        assertStatementCount("/borrow/my-records");
+    }
+
+    private void assertStatementCount(String url) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println(url + " 执行SQL语句数: " + statements);
+        assertTrue(statements <= MAX_STATEMENTS_PER_REQUEST,
+                url + " 执行了 " + statements + " 条SQL语句，超过上限 " + MAX_STATEMENTS_PER_REQUEST);
+    }
+}
@@ -0,0 +1,111 @@
+package com.Southern.book;
+
+import com.Southern.book.entity.Book;
+import com.Southern.book.entity.User;
+import com.Southern.book.repository.BookRepository;
+import com.Southern.book.repository.BorrowRecordRepository;
+import com.Southern.book.repository.UserRepository;
+import com.Southern.book.service.BorrowService;
+import com.Southern.book.service.InventoryLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 启用内存库存账本后的并发借阅：内存中不超借，写回后数据库的可借数量与借阅记录一致
+@SpringBootTest(properties = {
+        "book.inventory.ledger.enabled=true",
+        "book.inventory.ledger.flush-interval-ms=3600000"
+})
+public class InventoryLedgerStressTest {
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRecordRepository borrowRecordRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private Book book;
+
+    @AfterEach
+    public void tearDown() {
+        for (User user : users) {
+            borrowRecordRepository.deleteAll(borrowRecordRepository.findByUser(user));
+        }
+        userRepository.deleteAll(users);
+        if (book != null) {
+            bookRepository.deleteById(book.getId());
+        }
+    }
+
+    @Test
+    public void testHotTitleCheckoutBurst() throws Exception {
+        assertTrue(inventoryLedger.isActive());
+        int copies = 30;
+        int borrowers = 300;
+        String suffix = String.valueOf(System.nanoTime());
+        book = new Book("LG" + suffix.substring(suffix.length() - 12), "Ledger Book " + suffix, "Ledger");
+        book.setTotalCopies(copies);
+        book.setAvailableCopies(copies);
+        book = bookRepository.save(book);
+        for (int i = 0; i < borrowers; i++) {
+            users.add(userRepository.save(new User("ledger_" + i + "_" + suffix, "x", null, "Ledger " + i)));
+        }
+
+        // 线程数超过连接池上限（20），借阅路径若需要第二个连接会在这里耗尽连接池
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    borrowService.borrowBook(user.getId(), book.getId(), 14);
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(60, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        executor.shutdown();
+        System.out.printf("库存账本热门图书争抢：%d 次请求，成功 %d 次，耗时 %.3f 秒，%.1f 次借阅/秒%n",
+                borrowers, succeeded, seconds, borrowers / seconds);
+
+        assertEquals(copies, succeeded);
+        assertEquals(0, inventoryLedger.getAvailableCopies(book.getId()));
+        // 写回前数据库仍是原值，写回后与内存一致
+        assertEquals(copies, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+        inventoryLedger.flush();
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getAvailableCopies());
+    }
+}